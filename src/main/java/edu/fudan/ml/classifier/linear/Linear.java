@@ -19,6 +19,9 @@ import edu.fudan.ml.classifier.Predict;
 import edu.fudan.ml.classifier.linear.inf.Inferencer;
 import edu.fudan.ml.types.Instance;
 import edu.fudan.ml.types.alphabet.AlphabetFactory;
+import edu.fudan.ml.types.alphabet.HashFeatureAlphabet;
+import edu.fudan.ml.types.alphabet.IFeatureAlphabet;
+import edu.fudan.ml.types.alphabet.StringFeatureAlphabet;
 import edu.fudan.nlp.pipe.Pipe;
 import edu.fudan.util.exception.LoadModelException;
 
@@ -81,7 +84,7 @@ public class Linear extends AbstractClassifier implements Serializable	{
 		out.close();
 	}
 	/**
-	 *  从文件读入分类器
+	 *  从文件读入分类器，支持gzip压缩的序列化格式和内存映射格式（见 {@link MappedModel}）
 	 * @param file
 	 * @return
 	 * @throws LoadModelException
@@ -89,6 +92,8 @@ public class Linear extends AbstractClassifier implements Serializable	{
 	public static Linear loadFrom(String file) {
 		Linear cl = null;
 		try {
+			if (MappedModel.isMapped(file))
+				return MappedModel.loadFrom(file).getClassifier();
 			ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(
 					new BufferedInputStream(new FileInputStream(file))));
 			cl = (Linear) in.readObject();
@@ -119,6 +124,27 @@ public class Linear extends AbstractClassifier implements Serializable	{
 		return inferencer.getWeights();
 	}
 
+	/**
+	 * 压缩模型：删除权重全为0的特征，其余特征重新连续编号，权重数组相应缩小。
+	 * 删除的特征查不到索引，得分与原来的0权重相同，解码结果不变。
+	 * 支持HashFeatureAlphabet和StringFeatureAlphabet。
+	 * @return 删除的特征个数
+	 */
+	public int compact() {
+		IFeatureAlphabet features = factory.DefaultFeatureAlphabet();
+		int n = features.keysize();
+		float[] weights = inferencer.getWeights();
+		if (features instanceof HashFeatureAlphabet)
+			weights = ((HashFeatureAlphabet) features).compact(weights);
+		else if (features instanceof StringFeatureAlphabet)
+			weights = ((StringFeatureAlphabet) features).compact(weights);
+		else
+			throw new UnsupportedOperationException(
+					"Can not compact " + features.getClass().getSimpleName());
+		inferencer.setWeights(weights);
+		return n - features.keysize();
+	}
+
 	public void setPipe(Pipe pipe) {
 		this.pipe = pipe;		
 	}
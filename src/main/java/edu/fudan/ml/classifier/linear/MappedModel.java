@@ -0,0 +1,351 @@
+package edu.fudan.ml.classifier.linear;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import edu.fudan.ml.classifier.linear.inf.Inferencer;
+import edu.fudan.ml.types.alphabet.AlphabetFactory;
+import edu.fudan.ml.types.alphabet.HashFeatureAlphabet;
+import edu.fudan.ml.types.alphabet.IFeatureAlphabet;
+import edu.fudan.ml.types.alphabet.MappedIntTable;
+import edu.fudan.ml.types.sv.MappedWeightVector;
+import edu.fudan.ml.types.sv.QuantizedWeightVector;
+import edu.fudan.ml.types.sv.WeightVector;
+
+/**
+ * 内存映射的二进制模型格式。
+ * 权重和特征词典保存在按页对齐的段中，载入时以只读方式映射，不需要反序列化，
+ * 同一台机器上的多个进程共享一份页缓存。
+ * 模板、标签集和解码器等小对象仍用Java序列化保存在元数据段中。
+ * <pre>
+ * 文件头：魔数(8字节) 版本(int) 段个数(int)
+ * 段表：  段类型(int) 保留(int) 偏移(long) 长度(long)
+ * 段：    META     序列化的 {附加对象, 去掉权重和特征数据的Linear}
+ *         ALPHABET HashFeatureAlphabet的数据表，格式见 {@link MappedIntTable}
+ *         WEIGHTS  连续存放的float权重
+ *         QWEIGHTS 量化的权重，格式见 {@link QuantizedWeightVector}，与WEIGHTS二选一
+ * </pre>
+ * 特征词典不是HashFeatureAlphabet时保存在元数据段中，没有ALPHABET段。
+ * 所有数值按大端序保存。
+ * @author xpqiu
+ *
+ */
+public final class MappedModel {
+
+	private static final byte[] MAGIC = { 'F', 'N', 'L', 'P', 'M', 'A', 'P', 0 };
+	/**
+	 * 格式版本
+	 */
+	public static final int VERSION = 2;
+
+	private static final int PAGE = 4096;
+
+	static final int META = 1;
+	static final int ALPHABET = 2;
+	static final int WEIGHTS = 3;
+	/**
+	 * 版本2增加
+	 */
+	static final int QWEIGHTS = 4;
+
+	private final Object header;
+	private final Linear classifier;
+
+	private MappedModel(Object header, Linear classifier) {
+		this.header = header;
+		this.classifier = classifier;
+	}
+
+	/**
+	 * 保存时附加的对象，如序列标注的模板
+	 */
+	public Object getHeader() {
+		return header;
+	}
+
+	public Linear getClassifier() {
+		return classifier;
+	}
+
+	/**
+	 * 文件是否为映射格式
+	 * @param file 模型文件
+	 * @return 文件存在且以映射格式的魔数开头
+	 */
+	public static boolean isMapped(String file) {
+		File f = new File(file);
+		if (!f.isFile() || f.length() < MAGIC.length)
+			return false;
+		byte[] b = new byte[MAGIC.length];
+		InputStream in = null;
+		try {
+			in = new FileInputStream(f);
+			int n = 0;
+			while (n < b.length) {
+				int r = in.read(b, n, b.length - n);
+				if (r < 0)
+					return false;
+				n += r;
+			}
+		} catch (IOException e) {
+			return false;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+		return Arrays.equals(b, MAGIC);
+	}
+
+	/**
+	 * 保存为映射格式。写入期间暂时从分类器中取下权重和特征数据，写完后恢复，
+	 * 因此不能与使用该分类器的解码同时进行。
+	 * @param file 模型文件
+	 * @param header 附加对象，可以为null
+	 * @param cl 分类器
+	 * @throws IOException
+	 */
+	public static void saveTo(String file, Object header, Linear cl)
+			throws IOException {
+		Inferencer inf = cl.getInferencer();
+		AlphabetFactory factory = cl.getAlphabetFactory();
+		IFeatureAlphabet features = factory.DefaultFeatureAlphabet();
+		HashFeatureAlphabet hashFeatures = features instanceof HashFeatureAlphabet ?
+				(HashFeatureAlphabet) features : null;
+
+		WeightVector store = inf.getWeightVector();
+		QuantizedWeightVector quantized = store instanceof QuantizedWeightVector ?
+				(QuantizedWeightVector) store : null;
+		float[] weights = quantized == null ? inf.getWeights() : null;
+
+		byte[] meta;
+		inf.setWeights((float[]) null);
+		if (hashFeatures != null)
+			factory.setDefaultFeatureAlphabet(hashFeatures.copyWithoutData());
+		try {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(bos);
+			oos.writeObject(header);
+			oos.writeObject(cl);
+			oos.close();
+			meta = bos.toByteArray();
+		} finally {
+			factory.setDefaultFeatureAlphabet(features);
+			if (store != null)
+				inf.setWeights(store);
+			else
+				inf.setWeights(weights);
+		}
+
+		int numSections = hashFeatures != null ? 3 : 2;
+		int[] types = new int[numSections];
+		long[] lengths = new long[numSections];
+		int k = 0;
+		types[k] = META;
+		lengths[k++] = meta.length;
+		if (hashFeatures != null) {
+			types[k] = ALPHABET;
+			lengths[k++] = hashFeatures.tableSize();
+		}
+		if (quantized != null) {
+			types[k] = QWEIGHTS;
+			lengths[k++] = quantized.byteSize();
+		} else {
+			types[k] = WEIGHTS;
+			lengths[k++] = 4L * (weights == null ? 0 : weights.length);
+		}
+
+		long[] offsets = new long[numSections];
+		long pos = align(MAGIC.length + 8 + 24L * numSections);
+		for (int i = 0; i < numSections; i++) {
+			offsets[i] = pos;
+			pos = align(pos + lengths[i]);
+		}
+
+		File f = new File(file);
+		File path = f.getAbsoluteFile().getParentFile();
+		if (path != null && !path.exists())
+			path.mkdirs();
+		Counter counter = new Counter(new BufferedOutputStream(
+				new FileOutputStream(f), 1 << 16));
+		DataOutputStream out = new DataOutputStream(counter);
+		try {
+			out.write(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(numSections);
+			for (int i = 0; i < numSections; i++) {
+				out.writeInt(types[i]);
+				out.writeInt(0);
+				out.writeLong(offsets[i]);
+				out.writeLong(lengths[i]);
+			}
+			for (int i = 0; i < numSections; i++) {
+				padTo(out, counter, offsets[i]);
+				switch (types[i]) {
+				case META:
+					out.write(meta);
+					break;
+				case ALPHABET:
+					hashFeatures.writeTable(out);
+					break;
+				case WEIGHTS:
+					if (weights != null) {
+						for (int j = 0; j < weights.length; j++)
+							out.writeFloat(weights[j]);
+					}
+					break;
+				case QWEIGHTS:
+					quantized.write(out);
+					break;
+				}
+				if (counter.count != offsets[i] + lengths[i])
+					throw new IOException("Section " + types[i] + " size mismatch.");
+			}
+			padTo(out, counter, pos);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * 载入映射格式的模型。权重和特征数据映射为只读内存，不复制到堆中。
+	 * @param file 模型文件
+	 * @return 模型
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public static MappedModel loadFrom(String file) throws IOException,
+			ClassNotFoundException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel ch = raf.getChannel();
+			long size = ch.size();
+			ByteBuffer head = ByteBuffer.allocate(MAGIC.length + 8);
+			readFully(ch, head, 0);
+			byte[] magic = new byte[MAGIC.length];
+			head.get(magic);
+			if (!Arrays.equals(magic, MAGIC))
+				throw new IOException("Not a mapped model file: " + file);
+			int version = head.getInt();
+			if (version < 1 || version > VERSION)
+				throw new IOException("Unsupported model version " + version
+						+ " in " + file);
+			int numSections = head.getInt();
+			ByteBuffer table = ByteBuffer.allocate(24 * numSections);
+			readFully(ch, table, head.capacity());
+
+			byte[] meta = null;
+			MappedIntTable alphabet = null;
+			WeightVector weights = null;
+			for (int i = 0; i < numSections; i++) {
+				int type = table.getInt();
+				table.getInt();
+				long offset = table.getLong();
+				long length = table.getLong();
+				if (offset < 0 || length < 0 || offset + length > size)
+					throw new IOException("Corrupted section " + type + " in " + file);
+				MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY,
+						offset, length);
+				switch (type) {
+				case META:
+					meta = new byte[(int) length];
+					buf.get(meta);
+					break;
+				case ALPHABET:
+					alphabet = new MappedIntTable(buf);
+					break;
+				case WEIGHTS:
+					weights = new MappedWeightVector(buf);
+					break;
+				case QWEIGHTS:
+					weights = new QuantizedWeightVector(buf);
+					break;
+				default:
+					//忽略不认识的段，便于以后扩展
+				}
+			}
+			if (meta == null)
+				throw new IOException("Missing meta section in " + file);
+
+			ObjectInputStream in = new ObjectInputStream(
+					new ByteArrayInputStream(meta));
+			Object header = in.readObject();
+			Linear cl = (Linear) in.readObject();
+			in.close();
+
+			if (alphabet != null) {
+				IFeatureAlphabet features = cl.getAlphabetFactory().DefaultFeatureAlphabet();
+				((HashFeatureAlphabet) features).setTable(alphabet);
+			}
+			if (weights != null)
+				cl.getInferencer().setWeights(weights);
+			return new MappedModel(header, cl);
+		} finally {
+			//映射在通道关闭后仍然有效
+			raf.close();
+		}
+	}
+
+	private static long align(long pos) {
+		return (pos + PAGE - 1) / PAGE * PAGE;
+	}
+
+	private static void readFully(FileChannel ch, ByteBuffer buf, long pos)
+			throws IOException {
+		while (buf.hasRemaining()) {
+			int n = ch.read(buf, pos);
+			if (n < 0)
+				throw new IOException("Unexpected end of model file.");
+			pos += n;
+		}
+		buf.flip();
+	}
+
+	/**
+	 * 记录写入位置的输出流
+	 */
+	private static final class Counter extends FilterOutputStream {
+		private long count;
+
+		Counter(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
+	private static void padTo(DataOutputStream out, Counter counter, long pos)
+			throws IOException {
+		while (counter.count < pos)
+			out.write(0);
+	}
+}
@@ -39,6 +39,10 @@ public class OnlineTrainer extends AbstractTrainer {
 	public boolean DEBUG = false;
 	public boolean shuffle = true;
 	public boolean finalOptimized = false;
+	/**
+	 * 训练结束后是否压缩模型，见 {@link Linear#compact()}
+	 */
+	public boolean compact = false;
 	public boolean innerOptimized = false;
 	public boolean simpleOutput = false;
 	public boolean interim = false;
@@ -284,9 +288,24 @@ public class OnlineTrainer extends AbstractTrainer {
 				+ "s");
 		System.out.println();
 		Linear p = new Linear(inferencer, trainset.getAlphabetFactory());
+		if (compact)
+			compact(p);
 		return p;
 	}
 
+	/**
+	 * 压缩模型并输出压缩前后的大小
+	 * @param p 模型
+	 */
+	protected void compact(Linear p) {
+		int fsize = p.getAlphabetFactory().DefaultFeatureAlphabet().keysize();
+		int wsize = p.getWeights().length;
+		int removed = p.compact();
+		weights = p.getWeights();
+		System.out.println("Compact: features " + fsize + " -> " + (fsize - removed)
+				+ ", weights " + wsize + " -> " + weights.length);
+	}
+
 	@Override
 	public void evaluate(InstanceSet devset) {
 		float err = 0;
@@ -1,9 +1,12 @@
 package edu.fudan.ml.classifier.linear.inf;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 import edu.fudan.ml.classifier.TPredict;
 import edu.fudan.ml.types.Instance;
+import edu.fudan.ml.types.sv.WeightVector;
 
 /**
  * 推理类
@@ -15,6 +18,11 @@ public abstract class Inferencer implements Serializable	{
 	private static final long serialVersionUID = -7254946709189008567L;
 	
 	protected float[] weights;
+
+	/**
+	 * 只读权重（如映射到模型文件的权重），weights为null时使用
+	 */
+	protected transient WeightVector store;
 	
 	protected boolean isUseTarget;
 		
@@ -29,12 +37,79 @@ public abstract class Inferencer implements Serializable	{
 	
 	public abstract TPredict getBest(Instance inst, int n);
 	
+	/**
+	 * 得到权重数组。权重为只读权重向量时返回其拷贝。
+	 * @return 权重
+	 */
 	public float[] getWeights()	{
+		if (weights == null && store != null)
+			return store.toArray();
 		return weights;
 	}
 	
 	public void setWeights(float[] weights)	{
 		this.weights = weights;
+		this.store = null;
+	}
+
+	/**
+	 * 设置只读权重。缺省复制到数组，直接读取只读权重的推理类覆盖此方法。
+	 * @param weights 只读权重
+	 */
+	public void setWeights(WeightVector weights) {
+		setWeights(weights.toArray());
+	}
+
+	/**
+	 * 得到只读权重
+	 * @return 只读权重，未设置时为null
+	 */
+	public WeightVector getWeightVector() {
+		return store;
+	}
+
+	/**
+	 * 复制另一个推理类的权重（数组或只读权重），不复制数据
+	 * @param inf 推理类
+	 */
+	protected void copyWeights(Inferencer inf) {
+		this.weights = inf.weights;
+		this.store = inf.store;
+	}
+
+	/**
+	 * 是否已有权重
+	 */
+	protected final boolean hasWeights() {
+		return weights != null || store != null;
+	}
+
+	/**
+	 * 得到第i个权重
+	 */
+	protected final float weight(int i) {
+		return weights != null ? weights[i] : store.get(i);
+	}
+
+	/**
+	 * 权重个数
+	 */
+	protected final int numWeights() {
+		return weights != null ? weights.length : store.size();
+	}
+
+	/**
+	 * 序列化时将只读权重写成数组
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		float[] w = weights;
+		if (w == null && store != null)
+			weights = store.toArray();
+		try {
+			out.defaultWriteObject();
+		} finally {
+			weights = w;
+		}
 	}
 
 	public void isUseTarget(boolean b) {
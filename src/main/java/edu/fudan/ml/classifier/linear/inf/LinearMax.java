@@ -2,8 +2,10 @@ package edu.fudan.ml.classifier.linear.inf;
 
 import edu.fudan.ml.classifier.Predict;
 import edu.fudan.ml.feature.Generator;
+import edu.fudan.ml.feature.SFGenerator;
 import edu.fudan.ml.types.Instance;
 import edu.fudan.ml.types.sv.ISparseVector;
+import edu.fudan.ml.types.sv.WeightVector;
 
 /**
  * @author xpqiu
@@ -21,6 +23,15 @@ public class LinearMax extends Inferencer {
 		this.ysize = ysize;
 	}
 	
+	/**
+	 * 直接读取只读权重，不复制到数组
+	 */
+	@Override
+	public void setWeights(WeightVector weights) {
+		this.weights = null;
+		this.store = weights;
+	}
+
 	public Predict getBest(Instance inst)	{
 		return getBest(inst, 1);
 	}
@@ -39,7 +50,7 @@ public class LinearMax extends Inferencer {
 
 		for (int i = 0; i < ysize; i++) {
 			ISparseVector fv = generator.getVector(inst, i);
-			float score = fv.dotProduct(weights);
+			float score = weights != null ? fv.dotProduct(weights) : fv.dotProduct(store);
 			if (target != null && target == i)
 				oracle.add(i,score);
 			else
@@ -47,5 +58,51 @@ public class LinearMax extends Inferencer {
 		}
 		return pred;
 	}
+
+	/**
+	 * 批量计算多个样本在所有类别上的得分，用于柱搜索等一次需要对多个状态打分的场合。
+	 * 特征由 {@link SFGenerator} 生成时，按特征顺序读取每个特征连续的ysize个权重，
+	 * 不为每个类别生成特征向量，得分与 {@link #getBest(Instance, int)} 完全相同
+	 * @param data 各样本的特征索引
+	 * @param scores 结果，scores[b][i]为第b个样本在类别i上的得分，长度至少为ysize
+	 */
+	public void getScores(int[][] data, float[][] scores) {
+		if (!(generator instanceof SFGenerator)) {
+			for (int b = 0; b < data.length; b++) {
+				Instance inst = new Instance(data[b]);
+				for (int i = 0; i < ysize; i++) {
+					ISparseVector fv = generator.getVector(inst, i);
+					scores[b][i] = weights != null ? fv.dotProduct(weights) : fv.dotProduct(store);
+				}
+			}
+			return;
+		}
+		for (int b = 0; b < data.length; b++) {
+			float[] s = scores[b];
+			for (int i = 0; i < ysize; i++)
+				s[i] = 0f;
+			int[] feats = data[b];
+			if (weights != null) {
+				for (int j = 0; j < feats.length; j++) {
+					int f = feats[j];
+					for (int i = 0; i < ysize; i++)
+						s[i] += weights[f + i];
+				}
+			} else {
+				for (int j = 0; j < feats.length; j++) {
+					int f = feats[j];
+					for (int i = 0; i < ysize; i++)
+						s[i] += store.get(f + i);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 类别个数
+	 */
+	public int getYsize() {
+		return ysize;
+	}
 	
 }
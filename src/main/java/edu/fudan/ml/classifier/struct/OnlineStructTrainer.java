@@ -163,6 +163,8 @@ public class OnlineStructTrainer extends OnlineTrainer {
 		System.out.println("time escape:" + (endTime - beginTime) / 1000.0
 				+ "s");
 		Linear p = new Linear(inferencer, trainset.getAlphabetFactory());
+		if (compact)
+			compact(p);
 		return p;
 	}
 }
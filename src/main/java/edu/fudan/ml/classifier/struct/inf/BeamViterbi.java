@@ -0,0 +1,175 @@
+package edu.fudan.ml.classifier.struct.inf;
+
+import edu.fudan.ml.classifier.Predict;
+import edu.fudan.ml.types.Instance;
+import edu.fudan.ml.types.LabelMask;
+import edu.fudan.nlp.pipe.seq.templet.TempletGroup;
+
+/**
+ * 带剪枝的一阶线性解码器，每个位置只保留得分最高的beam个状态
+ * （以及得分与最高分之差不超过threshold的状态），
+ * 前向计算和转移得分的计算从 ysize*ysize 降为 ysize*beam，标签很多（如词性、实体名）时使用，结果是近似的。
+ * 使用：cl.setInferencer(new BeamViterbi((LinearViterbi) cl.getInferencer(), 8));
+ * 标注器中通过 tagger.getClassifier() 同样设置，标注器在下一次标注时自动使用新的解码器
+ * （见 {@link edu.fudan.nlp.cn.tag.AbstractTagger#getSnapshot()}）。
+ * 样本带有词典约束（{@link LabelMask}，如标注器设置了词典时的 {@link ConstraintViterbi}）时，
+ * 有约束的位置只在允许的标签中剪枝，模型中没有的标签不使用。
+ * 标注器设置或移除词典时会重新生成解码器，需要在之后再设置剪枝解码器。
+ * @author xpqiu
+ *
+ */
+public class BeamViterbi extends LinearViterbi {
+
+	private static final long serialVersionUID = 3962470856297018536L;
+
+	/**
+	 * 每个位置最多保留的状态数
+	 */
+	private int beam;
+
+	/**
+	 * 得分阈值，低于最高分减threshold的状态被剪掉
+	 */
+	private float threshold = Float.POSITIVE_INFINITY;
+
+	public BeamViterbi(TempletGroup templets, int ysize, int beam) {
+		super(templets, ysize);
+		setBeam(beam);
+	}
+
+	/**
+	 * 构造函数
+	 * @param viterbi 一阶线性解码器
+	 * @param beam 每个位置最多保留的状态数
+	 */
+	public BeamViterbi(LinearViterbi viterbi, int beam) {
+		this(viterbi.getTemplets(), viterbi.ysize, beam);
+		copyWeights(viterbi);
+		copyConstTransition(viterbi);
+	}
+
+	/**
+	 * 构造函数
+	 * @param viterbi 一阶线性解码器
+	 * @param beam 每个位置最多保留的状态数
+	 * @param threshold 得分阈值
+	 */
+	public BeamViterbi(LinearViterbi viterbi, int beam, float threshold) {
+		this(viterbi, beam);
+		setThreshold(threshold);
+	}
+
+	public int getBeam() {
+		return beam;
+	}
+
+	public void setBeam(int beam) {
+		if (beam <= 0)
+			throw new IllegalArgumentException("beam must be positive: " + beam);
+		this.beam = beam;
+	}
+
+	public float getThreshold() {
+		return threshold;
+	}
+
+	public void setThreshold(float threshold) {
+		this.threshold = threshold;
+	}
+
+	/**
+	 * 转移得分在前向计算时只对保留的前一状态计算，不填充整个转移矩阵
+	 */
+	@Override
+	public Predict<int[]> getBest(Instance carrier) {
+		Predict<int[]> res = new Predict<int[]>();
+		int length = carrier.length();
+		if (length == 0)
+			return res;
+
+		int ysize = ysize();
+		LabelMask mask = carrier.getDicData() instanceof LabelMask
+				? (LabelMask) carrier.getDicData() : null;
+		if (beam >= ysize && threshold == Float.POSITIVE_INFINITY && mask == null)
+			return super.getBest(carrier);
+
+		int[][] data = (int[][]) carrier.getData();
+		Lattice lattice = Lattice.get(length, ysize, false);
+		float[] score = lattice.score;
+		int[] prev = lattice.prev;
+		int[] cands = lattice.cands;
+		int[] ncands = lattice.ncands;
+		boolean[] isConst = isConstTrans;
+		float[] constTrans = this.constTrans;
+		int numWeights = numWeights();
+		//当前位置上与位置相关的一阶特征
+		int[] transIdx = new int[orders.length];
+
+		for (int l = 0; l < length; l++) {
+			int cur = l * ysize;
+			if (mask != null)
+				constrain(mask, l, cands, ncands, cur);
+			int nc = ncands[l];
+			int ntrans = 0;
+			for (int i = 0; i < orders.length; i++) {
+				if (isConst != null && isConst[i])
+					continue;
+				int idx = data[l][i];
+				if (idx == -1 || idx >= numWeights)
+					continue;
+				if (orders[i] == 0) {
+					for (int q = 0; q < nc; q++) {
+						int c = cands[cur + q];
+						score[cur + c] += weight(idx + c);
+					}
+				} else if (orders[i] == 1) {
+					transIdx[ntrans++] = idx;
+				}
+			}
+			if (l > 0) {
+				int last = cur - ysize;
+				int np = ncands[l - 1];
+				for (int q = 0; q < nc; q++) {
+					int c = cands[cur + q];
+					float bestScore = Float.NEGATIVE_INFINITY;
+					int bestPath = -1;
+					for (int j = 0; j < np; j++) {
+						int p = cands[last + j];
+						float t = isConst != null ? constTrans[c * ysize + p] : 0;
+						int offset = p * ysize + c;
+						for (int k = 0; k < ntrans; k++)
+							t += weight(transIdx[k] + offset);
+						float s = score[last + p] + t;
+						if (s > bestScore) {
+							bestScore = s;
+							bestPath = p;
+						}
+					}
+					score[cur + c] += bestScore;
+					prev[cur + c] = bestPath;
+				}
+			}
+			lattice.prune(l, beam, threshold);
+		}
+
+		int[] path = new int[length];
+		float max = lattice.getPath(path);
+		res.add(path, max);
+
+		return res;
+	}
+
+	/**
+	 * 位置l有约束时只保留允许的、模型中有的标签，没有这样的标签时不受约束
+	 */
+	private void constrain(LabelMask mask, int l, int[] cands, int[] ncands, int cur) {
+		if (!mask.isConstrained(l))
+			return;
+		int n = 0;
+		for (int c = mask.nextLabel(l, 0); c >= 0 && c < ysize; c = mask.nextLabel(l, c + 1))
+			cands[cur + n++] = c;
+		if (n > 0)
+			ncands[l] = n;
+	}
+
+}
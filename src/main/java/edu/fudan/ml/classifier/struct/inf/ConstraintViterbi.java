@@ -1,6 +1,7 @@
 package edu.fudan.ml.classifier.struct.inf;
 
 import edu.fudan.ml.types.Instance;
+import edu.fudan.ml.types.LabelMask;
 import edu.fudan.nlp.pipe.seq.templet.TempletGroup;
 
 /**
@@ -25,8 +26,8 @@ public class ConstraintViterbi extends LinearViterbi {
 	 */
 	public ConstraintViterbi(LinearViterbi viterbi) {
 		this(viterbi.getTemplets(), viterbi.ysize);
-		this.weights = viterbi.getWeights();
-		
+		copyWeights(viterbi);
+		copyConstTransition(viterbi);
 	}
 
 	/**
@@ -35,7 +36,8 @@ public class ConstraintViterbi extends LinearViterbi {
 	 */
 	public ConstraintViterbi(LinearViterbi viterbi,int ysize) {
 		this(viterbi.getTemplets(), viterbi.ysize);
-		this.weights = viterbi.getWeights();
+		copyWeights(viterbi);
+		copyConstTransition(viterbi);
 		this.newysize = ysize;
 	}
 	@Override
@@ -44,46 +46,64 @@ public class ConstraintViterbi extends LinearViterbi {
 	}
 	
 	/**
-	 * 构造约束网格，不经过的节点设置为NULL
+	 * 构造约束网格，有约束的位置只保留并计算允许的节点
 	 */
 	@Override
-	protected Node[][] initialLattice(Instance carrier) {
+	void initialLattice(Lattice lattice, Instance carrier) {
 		int[][] data = (int[][]) carrier.getData();
 
-		int[][] dicData = (int[][]) carrier.getDicData();
+		LabelMask dicData = (LabelMask) carrier.getDicData();
 
-		int length = carrier.length();
+		int[] cands = lattice.cands;
+		int[] ncands = lattice.ncands;
 
-		Node[][] lattice = new Node[length][];
-
-		for (int l = 0; l < length; l++) {
-			lattice[l] = new Node[newysize];
-			for (int c = 0; c < ysize; c++) {
-				if (dicData[l][c] == 0) {
-					lattice[l][c] = new Node(newysize);
-					for (int i = 0; i < orders.length; i++) {
-						if (data[l][i] == -1)
-							continue;
-						if (orders[i] == 0) {
-							lattice[l][c].score += weights[data[l][i] + c];
-						} else if (l > 0 && orders[i] == 1) {
-							for (int p = 0; p < ysize; p++) {
-								int offset = p * ysize + c;
-								lattice[l][c].trans[p] += weights[data[l][i]
-										+ offset];
-							}
-						}
-					}
-				}
+		for (int l = 0; l < lattice.length; l++) {
+			int n = 0;
+			if (dicData.isConstrained(l)) {
+				int off = l * newysize;
+				for (int c = dicData.nextLabel(l, 0); c >= 0 && c < newysize;
+						c = dicData.nextLabel(l, c + 1))
+					cands[off + n++] = c;
 			}
-			for (int c = ysize; c < newysize; c++) {
-				if (dicData[l][c] == 0) {
-					lattice[l][c] = new Node(newysize);
+			if (n == 0) {
+				for (int c = 0; c < ysize; c++)
+					initialNode(lattice, data[l], l, c);
+			} else {
+				ncands[l] = n;
+				for (int k = 0; k < n; k++) {
+					int c = cands[l * newysize + k];
+					if (c < ysize)
+						initialNode(lattice, data[l], l, c);
 				}
 			}
 		}
+	}
 
-		return lattice;
+	/**
+	 * 计算位置l上标签c的节点得分和到它的转移得分
+	 */
+	private void initialNode(Lattice lattice, int[] data, int l, int c) {
+		float[] score = lattice.score;
+		float[] trans = lattice.trans;
+		boolean[] isConst = isConstTrans;
+		int node = l * newysize + c;
+		int t = node * newysize;
+		if (l > 0 && isConst != null)
+			System.arraycopy(constTrans, c * ysize, trans, t, ysize);
+		for (int i = 0; i < orders.length; i++) {
+			if (isConst != null && isConst[i])
+				continue;
+			if (data[i] == -1)
+				continue;
+			if (orders[i] == 0) {
+				score[node] += weight(data[i] + c);
+			} else if (l > 0 && orders[i] == 1) {
+				for (int p = 0; p < ysize; p++) {
+					int offset = p * ysize + c;
+					trans[t + p] += weight(data[i] + offset);
+				}
+			}
+		}
 	}
 
 }
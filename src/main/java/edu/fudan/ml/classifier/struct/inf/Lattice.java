@@ -0,0 +1,234 @@
+package edu.fudan.ml.classifier.struct.inf;
+
+import java.util.Arrays;
+
+/**
+ * 一阶Viterbi解码网格，用一维数组保存节点得分、转移得分和回溯指针。
+ * 每个线程复用一个实例，只在遇到更长的句子时才扩容。
+ * @author xpqiu
+ *
+ */
+final class Lattice {
+
+	private static final ThreadLocal<Lattice> local = new ThreadLocal<Lattice>() {
+		@Override
+		protected Lattice initialValue() {
+			return new Lattice();
+		}
+	};
+
+	/**
+	 * 句子长度
+	 */
+	int length;
+	/**
+	 * 每个位置的状态个数
+	 */
+	int width;
+	/**
+	 * 节点得分，下标为 l*width+c
+	 */
+	float[] score = new float[0];
+	/**
+	 * 转移得分，下标为 (l*width+c)*width+p，表示位置l上从p转移到c
+	 */
+	float[] trans = new float[0];
+	/**
+	 * 回溯指针，下标同score
+	 */
+	int[] prev = new int[0];
+	/**
+	 * 每个位置可用的状态，位置l的第k个状态为 cands[l*width+k]，
+	 * 默认为全部状态，约束解码中只保留允许的状态
+	 */
+	int[] cands = new int[0];
+	/**
+	 * 每个位置可用状态的个数
+	 */
+	int[] ncands = new int[0];
+	/**
+	 * 剪枝时的临时空间
+	 */
+	private float[] buf = new float[0];
+
+	private Lattice() {
+	}
+
+	/**
+	 * 得到当前线程的网格，并清空前length个位置
+	 * @param length 句子长度
+	 * @param width 每个位置的状态个数
+	 * @return 网格
+	 */
+	static Lattice get(int length, int width) {
+		return get(length, width, true);
+	}
+
+	/**
+	 * 得到当前线程的网格
+	 * @param length 句子长度
+	 * @param width 每个位置的状态个数
+	 * @param withTrans 是否需要转移得分，解码时直接计算转移得分的不需要
+	 * @return 网格
+	 */
+	static Lattice get(int length, int width, boolean withTrans) {
+		Lattice lattice = local.get();
+		lattice.reset(length, width, withTrans);
+		return lattice;
+	}
+
+	private void reset(int length, int width, boolean withTrans) {
+		this.length = length;
+		this.width = width;
+		int n = length * width;
+		if (score.length < n) {
+			int cap = Math.max(n, score.length * 2);
+			score = new float[cap];
+			prev = new int[cap];
+			cands = new int[cap];
+		}
+		if (buf.length < width) {
+			buf = new float[width];
+		}
+		if (ncands.length < length) {
+			ncands = new int[Math.max(length, ncands.length * 2)];
+		}
+		if (withTrans && trans.length < n * width) {
+			trans = new float[Math.max(n * width, trans.length * 2)];
+		}
+		Arrays.fill(score, 0, n, 0);
+		Arrays.fill(prev, 0, n, -1);
+		for (int l = 0, i = 0; l < length; l++) {
+			ncands[l] = width;
+			for (int c = 0; c < width; c++)
+				cands[i++] = c;
+		}
+		if (withTrans)
+			Arrays.fill(trans, 0, n * width, 0);
+	}
+
+	/**
+	 * 前向Viterbi算法
+	 */
+	void doForwardViterbi() {
+		for (int l = 1; l < length; l++) {
+			int cur = l * width;
+			int last = cur - width;
+			int nc = ncands[l];
+			int np = ncands[l - 1];
+			for (int i = 0; i < nc; i++) {
+				int c = cands[cur + i];
+				int t = (cur + c) * width;
+				float bestScore = Float.NEGATIVE_INFINITY;
+				int bestPath = -1;
+				for (int j = 0; j < np; j++) {
+					int p = cands[last + j];
+					float s = score[last + p] + trans[t + p];
+					if (s > bestScore) {
+						bestScore = s;
+						bestPath = p;
+					}
+				}
+				score[cur + c] += bestScore;
+				prev[cur + c] = bestPath;
+			}
+		}
+	}
+
+	/**
+	 * 剪枝位置l上的状态，只保留得分最高的beam个以及得分不低于最高分减threshold的状态，
+	 * 保留的状态仍按编号排列
+	 */
+	void prune(int l, int beam, float threshold) {
+		int off = l * width;
+		int n = ncands[l];
+		float max = Float.NEGATIVE_INFINITY;
+		for (int k = 0; k < n; k++)
+			max = Math.max(max, score[off + cands[off + k]]);
+		int m = 0;
+		float min = max - threshold;
+		for (int k = 0; k < n; k++) {
+			int c = cands[off + k];
+			if (score[off + c] >= min)
+				cands[off + m++] = c;
+		}
+		if (m > beam) {
+			//第beam大的得分，得分更高的全部保留，相等的按编号保留到beam个
+			for (int k = 0; k < m; k++)
+				buf[k] = score[off + cands[off + k]];
+			float kth = select(buf, m, beam - 1);
+			int above = 0;
+			for (int k = 0; k < m; k++) {
+				if (score[off + cands[off + k]] > kth)
+					above++;
+			}
+			int ties = beam - above;
+			int r = 0;
+			for (int k = 0; k < m; k++) {
+				int c = cands[off + k];
+				float sc = score[off + c];
+				if (sc > kth || (sc == kth && ties-- > 0))
+					cands[off + r++] = c;
+			}
+			m = r;
+		}
+		ncands[l] = m;
+	}
+
+	/**
+	 * 找出a[0,n)中从大到小第k个（从0开始）的值，会打乱a的顺序
+	 */
+	private static float select(float[] a, int n, int k) {
+		int lo = 0;
+		int hi = n - 1;
+		while (lo < hi) {
+			float pivot = a[(lo + hi) >>> 1];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (a[i] > pivot)
+					i++;
+				while (a[j] < pivot)
+					j--;
+				if (i <= j) {
+					float t = a[i];
+					a[i] = a[j];
+					a[j] = t;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j)
+				hi = j;
+			else if (k >= i)
+				lo = i;
+			else
+				return a[k];
+		}
+		return a[k];
+	}
+
+	/**
+	 * 回溯获得最优路径
+	 * @param path 保存路径，长度为length
+	 * @return 最优路径得分
+	 */
+	float getPath(int[] path) {
+		float max = Float.NEGATIVE_INFINITY;
+		int cur = 0;
+		int last = (length - 1) * width;
+		for (int k = 0; k < ncands[length - 1]; k++) {
+			int c = cands[last + k];
+			if (score[last + c] > max) {
+				max = score[last + c];
+				cur = c;
+			}
+		}
+		path[length - 1] = cur;
+		for (int l = length - 1; l > 0; l--) {
+			cur = prev[l * width + cur];
+			path[l - 1] = cur;
+		}
+		return max;
+	}
+}
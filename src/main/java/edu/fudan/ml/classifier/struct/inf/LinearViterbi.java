@@ -4,11 +4,16 @@ import java.util.Arrays;
 
 import edu.fudan.ml.classifier.Predict;
 import edu.fudan.ml.types.Instance;
+import edu.fudan.ml.types.alphabet.IFeatureAlphabet;
+import edu.fudan.ml.types.sv.WeightVector;
+import edu.fudan.nlp.pipe.seq.templet.BaseTemplet;
+import edu.fudan.nlp.pipe.seq.templet.Templet;
 import edu.fudan.nlp.pipe.seq.templet.TempletGroup;
 
 /**
  * 一阶线性最优序列解码器
  * （修改成可并行版本 2011.9.15）
+ * （网格改为按线程复用的一维数组）
  * @author Feng Ji
  * 
  */
@@ -16,7 +21,15 @@ public class LinearViterbi extends AbstractViterbi {
 
 	private static final long serialVersionUID = -8237762672065700553L;
 
-	
+	/**
+	 * 与位置无关的一阶模板（如%y[-1]%y[0]）标志，为null表示未预计算
+	 */
+	transient boolean[] isConstTrans;
+
+	/**
+	 * 与位置无关的一阶模板累加得到的转移矩阵，trans(c,p)的下标为c*ysize+p
+	 */
+	transient float[] constTrans;
 
 	public LinearViterbi(TempletGroup templets, int ysize) {
 		this.ysize = ysize;
@@ -43,55 +56,177 @@ public class LinearViterbi extends AbstractViterbi {
 	 */
 	public LinearViterbi(AbstractViterbi viterbi) {
 		this(viterbi.getTemplets(), viterbi.ysize);
-		this.weights = viterbi.getWeights();
+		copyWeights(viterbi);
+		if (viterbi instanceof LinearViterbi)
+			copyConstTransition((LinearViterbi) viterbi);
+	}
+
+	/**
+	 * 权重改变后，预计算的转移矩阵失效
+	 */
+	@Override
+	public void setWeights(float[] weights) {
+		super.setWeights(weights);
+		isConstTrans = null;
+		constTrans = null;
+	}
+
+	/**
+	 * 直接读取只读权重，不复制到数组
+	 */
+	@Override
+	public void setWeights(WeightVector weights) {
+		this.weights = null;
+		this.store = weights;
+		isConstTrans = null;
+		constTrans = null;
+	}
+
+	/**
+	 * 预计算与位置无关的一阶模板的转移矩阵，解码时只需再累加与位置相关的转移特征。
+	 * 权重固定后（如模型载入后）调用，计算时临时冻结特征词典，不会加入新特征。
+	 * 只预计算排在所有与位置相关的一阶模板之前的模板，使转移得分的累加顺序与逐个模板累加时相同，
+	 * 解码结果与不预计算时完全一致。
+	 * @param features 特征词典
+	 */
+	public void buildConstTransition(IFeatureAlphabet features) {
+		isConstTrans = null;
+		constTrans = null;
+		if (templets == null || !hasWeights())
+			return;
+
+		boolean[] isConst = new boolean[orders.length];
+		float[] trans = new float[ysize * ysize];
+		//长度为2的虚拟序列，与位置无关的模板在第2个位置上生成的特征即为其在任意位置上的特征
+		Instance dummy = new Instance(new String[1][2]);
+		boolean found = false;
+		boolean frozen = features.isStopIncrement();
+		features.setStopIncrement(true);
+		try {
+			for (int i = 0; i < orders.length; i++) {
+				if (orders[i] != 1)
+					continue;
+				Templet t = templets.get(i);
+				if (!(t instanceof BaseTemplet)
+						|| !((BaseTemplet) t).isPositionInvariant())
+					break;
+				int idx;
+				try {
+					idx = t.generateAt(dummy, features, 1, ysize);
+				} catch (Exception e) {
+					break;
+				}
+				isConst[i] = true;
+				found = true;
+				if (idx == -1 || idx >= numWeights())
+					continue;
+				for (int c = 0; c < ysize; c++) {
+					int offset = c;
+					for (int p = 0; p < ysize; p++) {
+						trans[c * ysize + p] += weight(idx + offset);
+						offset += ysize;
+					}
+				}
+			}
+		} finally {
+			features.setStopIncrement(frozen);
+		}
+		if (found) {
+			isConstTrans = isConst;
+			constTrans = trans;
+		}
+	}
+
+	void copyConstTransition(LinearViterbi viterbi) {
+		isConstTrans = viterbi.isConstTrans;
+		constTrans = viterbi.constTrans;
 	}
 
 
 	@Override
 	public Predict<int[]> getBest(Instance carrier) {
+		Predict<int[]> res = new Predict<int[]>();
+		int length = carrier.length();
+		if (length == 0)
+			return res;
+
+		Lattice lattice = Lattice.get(length, ysize());
 
-		Node[][] node = initialLattice(carrier);
+		initialLattice(lattice, carrier);
 
-		doForwardViterbi(node, carrier);
+		lattice.doForwardViterbi();
 
-		Predict<int[]> res = getPath(node);
+		int[] path = new int[length];
+		float max = lattice.getPath(path);
+		res.add(path, max);
 
 		return res;
 	}
 
 	/**
-	 * 构造并初始化网格
+	 * 初始化网格，填入节点得分和转移得分
+	 * @param lattice 已清空的网格
 	 * @param carrier 样本实例
-	 * @return 推理网格
 	 */
-	protected Node[][] initialLattice(Instance carrier) {
+	void initialLattice(Lattice lattice, Instance carrier) {
 		int[][] data = (int[][]) carrier.getData();
+		float[] score = lattice.score;
+		float[] trans = lattice.trans;
+		boolean[] isConst = isConstTrans;
+		float[] constTrans = this.constTrans;
+		int numWeights = numWeights();
 
-		int length = carrier.length();
-
-		Node[][] lattice = new Node[length][];
-		for (int l = 0; l < length; l++) {
-			lattice[l] = new Node[ysize];
+		for (int l = 0; l < lattice.length; l++) {
 			for (int c = 0; c < ysize; c++) {
-				lattice[l][c] = new Node(ysize);
+				int node = l * ysize + c;
+				int t = node * ysize;
+				if (l > 0 && isConst != null)
+					System.arraycopy(constTrans, c * ysize, trans, t, ysize);
 				for (int i = 0; i < orders.length; i++) {
-					if (data[l][i] == -1 || data[l][i]>=weights.length) //TODO: xpqiu 2013.2.1
+					if (isConst != null && isConst[i])
+						continue;
+					if (data[l][i] == -1 || data[l][i]>=numWeights) //TODO: xpqiu 2013.2.1
 						continue;
 					if (orders[i] == 0) {
-						lattice[l][c].score += weights[data[l][i] + c];
-					} else if (orders[i] == 1) {
+						score[node] += weight(data[l][i] + c);
+					} else if (l > 0 && orders[i] == 1) {
 						int offset = c;
 						for (int p = 0; p < ysize; p++) {
 							//weights对应trans(c,p)的按行展开
-							lattice[l][c].trans[p] += weights[data[l][i]
-									+ offset];
+							trans[t + p] += weight(data[l][i] + offset);
 							offset += ysize;
 						}
 					}
 				}
 			}
 		}
+	}
 
+	/**
+	 * 构造并初始化对象形式的网格，不可用的节点为null
+	 * @param carrier 样本实例
+	 * @return 推理网格
+	 * @deprecated 网格改为一维数组，{@link #getBest(Instance)} 不再调用此方法，
+	 * 子类应覆盖 initialLattice(Lattice, Instance)
+	 */
+	@Deprecated
+	protected Node[][] initialLattice(Instance carrier) {
+		int length = carrier.length();
+		int width = ysize();
+		Lattice flat = Lattice.get(length, width);
+		initialLattice(flat, carrier);
+		Node[][] lattice = new Node[length][width];
+		for (int l = 0; l < length; l++) {
+			int cur = l * width;
+			for (int k = 0; k < flat.ncands[l]; k++) {
+				int c = flat.cands[cur + k];
+				Node node = new Node(width);
+				node.score = flat.score[cur + c];
+				if (l > 0)
+					System.arraycopy(flat.trans, (cur + c) * width, node.trans, 0, width);
+				lattice[l][c] = node;
+			}
+		}
 		return lattice;
 	}
 
@@ -99,7 +234,9 @@ public class LinearViterbi extends AbstractViterbi {
 	 * 前向Viterbi算法
 	 * @param lattice 网格
 	 * @param carrier 样本实例
+	 * @deprecated 网格改为一维数组，{@link #getBest(Instance)} 不再调用此方法
 	 */
+	@Deprecated
 	protected void doForwardViterbi(Node[][] lattice, Instance carrier) {
 		for (int l = 1; l < lattice.length; l++) {
 			for (int c = 0; c < lattice[l].length; c++) {
@@ -111,7 +248,7 @@ public class LinearViterbi extends AbstractViterbi {
 				for (int p = 0; p < lattice[l - 1].length; p++) {
 					if (lattice[l - 1][p] == null)
 						continue;
-					
+
 					float score = lattice[l - 1][p].score
 							+ lattice[l][c].trans[p];
 					if (score > bestScore) {
@@ -129,7 +266,9 @@ public class LinearViterbi extends AbstractViterbi {
 	 * 回溯获得最优路径
 	 * @param lattice 网格
 	 * @return 最优路径及其得分
+	 * @deprecated 网格改为一维数组，{@link #getBest(Instance)} 不再调用此方法
 	 */
+	@Deprecated
 	protected Predict<int[]> getPath(Node[][] lattice) {
 
 		Predict<int[]> res = new Predict<int[]>();
@@ -141,7 +280,7 @@ public class LinearViterbi extends AbstractViterbi {
 		for (int c = 0; c < ysize(); c++) {
 			if (lattice[lattice.length-1][c] == null)
 				continue;
-			
+
 			if (lattice[lattice.length - 1][c].score > max) {
 				max = lattice[lattice.length - 1][c].score;
 				cur = c;
@@ -159,6 +298,11 @@ public class LinearViterbi extends AbstractViterbi {
 		return res;
 	}
 
+	/**
+	 * 对象形式网格的节点
+	 * @deprecated 网格改为一维数组
+	 */
+	@Deprecated
 	final class Node {
 
 		float base = 0;
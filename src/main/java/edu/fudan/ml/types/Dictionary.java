@@ -9,24 +9,114 @@ import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 
+import edu.fudan.util.DoubleArrayTrie;
 import edu.fudan.util.FileUtils;
 import edu.fudan.util.MultiValueMap;
 import edu.fudan.util.MyCollection;
 import edu.fudan.util.exception.LoadModelException;
 
+/**
+ * 用户词典。
+ * 修改时复制一份词典，建好Trie树后整体替换，正在标注的线程总是看到完整的某一个版本，
+ * 修改不需要重建使用该词典的Pipe。
+ * 连续的修改都加入同一个副本，到下一次读取词典时才建Trie树并替换，
+ * 因此逐个加入n个词只复制和建树一次，而不是n次。
+ */
 public class Dictionary {
 	/**用户添加新词的最大长度，超过限制的词语不会被添加到字典中*/
 	private static final int MAX_LEN = 10;
 	/**用户添加新词的最小长度，超过限制的词语不会被添加到字典中*/
 	private static final int MIN_LEN = 2;
+
+	private static final AtomicLong VERSIONS = new AtomicLong();
+
 	/**
-	 * 词典，词和相应的词性
+	 * 词典的一个只读版本，其中的词性表和Trie树总是对应同一组词
 	 */
-	private MultiValueMap<String,String> dp;
+	public static final class Snapshot {
+		/**
+		 * 版本号，所有词典的所有版本都不相同
+		 */
+		final long version = VERSIONS.incrementAndGet();
+		/**
+		 * 词和相应的词性
+		 */
+		final MultiValueMap<String,String> dp;
+		/**
+		 * 词的双数组Trie树
+		 */
+		final DoubleArrayTrie trie;
+		/**
+		 * 兼容旧接口的前缀索引，按需建立
+		 */
+		private TreeMap<String, int[]> index;
+		private int indexLen;
+
+		Snapshot(MultiValueMap<String,String> dp) {
+			this.dp = dp;
+			this.trie = new DoubleArrayTrie(dp.keySet());
+		}
+
+		public long getVersion() {
+			return version;
+		}
+
+		/**
+		 * 词和词性，只读
+		 */
+		public MultiValueMap<String, String> getPOSDict() {
+			return dp;
+		}
+
+		/**
+		 * 词的双数组Trie树，词的编号为按字符串排序的序号
+		 */
+		public DoubleArrayTrie getTrie() {
+			return trie;
+		}
+
+		/**
+		 * 词的前len个字符到以其开头的词的长度（从大到小）的索引
+		 */
+		synchronized TreeMap<String, int[]> index(int len) {
+			if (index != null && indexLen == len)
+				return index;
+			TreeMap<String, TreeSet<Integer>> indexT = new TreeMap<String, TreeSet<Integer>>();
+			for(String s: dp.keySet()) {
+				if(s.length() < len)
+					continue;
+				String temp = s.substring(0, len);
+				TreeSet<Integer> set = indexT.get(temp);
+				if(set == null) {
+					set = new TreeSet<Integer>();
+					indexT.put(temp, set);
+				}
+				set.add(s.length());
+			}
+			TreeMap<String, int[]> idx = new TreeMap<String, int[]>();
+			for(Entry<String, TreeSet<Integer>> entry: indexT.entrySet()) {
+				TreeSet<Integer> set = entry.getValue();
+				int[] ia = new int[set.size()];
+				int i = set.size();
+				for(Integer integer: set) {
+					ia[--i] = integer;
+				}
+				idx.put(entry.getKey(), ia);
+			}
+			index = idx;
+			indexLen = len;
+			return idx;
+		}
+	}
 
-	private TreeMap<String, int[]> index = new TreeMap<String, int[]>();
-	private int indexLen = 2;
+	private volatile Snapshot current;
+	/**
+	 * 还没有替换current的修改，为null时没有
+	 */
+	private MultiValueMap<String,String> pending;
+	private volatile boolean dirty;
 	private boolean ambiguity;
 
 	private int maxLen;
@@ -58,23 +148,53 @@ public class Dictionary {
 	    int maxLen,int minLen) {
 		this.maxLen = maxLen;
 		this.minlen = minLen;
-		dp = new MultiValueMap<String, String>();
 		this.ambiguity = ambiguity;
 		ArrayList<String[]> al = loadDict(path);
-		add(al); 
-		createIndex();
+		MultiValueMap<String,String> dp = new MultiValueMap<String, String>();
+		if(al != null) {
+			for(String[] pos: al)
+				addDict(dp, pos[0], Arrays.copyOfRange(pos, 1, pos.length));
+		}
+		current = new Snapshot(dp);
 	}
 
 
+	/**
+	 * 读取时使用的版本，有未替换的修改时先建Trie树
+	 */
+	private Snapshot snapshot() {
+		if (dirty)
+			publish();
+		return current;
+	}
+
+	private synchronized void publish() {
+		if (pending != null) {
+			current = new Snapshot(pending);
+			pending = null;
+		}
+		dirty = false;
+	}
+
+	/**
+	 * 正在修改的词典副本，调用者需持有锁
+	 */
+	private MultiValueMap<String,String> edit() {
+		if (pending == null)
+			pending = new MultiValueMap<String, String>(current.dp);
+		return pending;
+	}
+
 	/**
 	 * 加入不带词性的词典
 	 * @param al 词的数组
 	 */
-	public void addSegDict(Collection<String> al) {
+	public synchronized void addSegDict(Collection<String> al) {
+		MultiValueMap<String,String> dp = edit();
 		for(String s: al){
-			addDict(s);
+			addDict(dp, s);
 		}
-		//createIndex();
+		dirty = true;
 	}
 
 	/**
@@ -83,8 +203,20 @@ public class Dictionary {
 	 * @param poses 词性数组
 	 */
 	public void add(String word, String... poses) {		
-		addDict(word,poses);
-		indexLen = MIN_LEN;
+		addWord(word,poses);
+	}
+
+	/**
+	 * 加入一组相同词性的词
+	 * @param words 词
+	 * @param pos 词性
+	 */
+	public synchronized void add(Collection<String> words, String pos) {
+		MultiValueMap<String,String> dp = edit();
+		for(String w: words) {
+			addDict(dp, w, pos);
+		}
+		dirty = true;
 	}
 
 	/**
@@ -94,25 +226,28 @@ public class Dictionary {
 	 * 						String[] 第一个元素为单词，后面为对应的词性
 	 * @return 
 	 */
-	public void add(ArrayList<String[]> al) {
+	public synchronized void add(ArrayList<String[]> al) {
 		if(null == al || al.size() <= 0) {
 			return;
 		}
+		MultiValueMap<String,String> dp = edit();
 		for(String[] pos: al) {
-			addDict(pos[0], Arrays.copyOfRange(pos, 1, pos.length));
+			addDict(dp, pos[0], Arrays.copyOfRange(pos, 1, pos.length));
 		}
-		indexLen = MIN_LEN;
-		//createIndex();
+		dirty = true;
 	}
 	/**
-	 * 在目前词典中增加新的词典信息
-	 * @param path
+	 * 在目前词典中增加新的词典信息，多个文件一次加入
+	 * @param paths
 	 */
-	public void addFile(String path) {
-		ArrayList<String[]> al = loadDict(path);
+	public void addFile(String... paths) {
+		ArrayList<String[]> al = new ArrayList<String[]>();
+		for(String path: paths) {
+			ArrayList<String[]> words = loadDict(path);
+			if(words != null)
+				al.addAll(words);
+		}
 		add(al);
-		indexLen = MIN_LEN;
-		createIndex();
 	}
 
 
@@ -185,10 +320,11 @@ public class Dictionary {
 	}
 	/**
 	 * 增加词典信息
+	 * @param dp 正在修改的词典副本
 	 * @param word
 	 * @param poses
 	 */
-	private void addDict(String word, String... poses){
+	private void addDict(MultiValueMap<String,String> dp, String word, String... poses){
 		if(word.length() > this.maxLen) {
 			this.maxLen = word.length();
 		} else if(word.length() < this.minlen) {
@@ -211,39 +347,33 @@ public class Dictionary {
 	 * @param word
 	 * @param poses
      */
-	public void addWord(String word, String... poses) {
-		addDict(word,poses);
-		indexLen = MIN_LEN;
+	public synchronized void addWord(String word, String... poses) {
+		addDict(edit(), word, poses);
+		dirty = true;
 	}
 
 	/**
-	 * 建立词的索引
+	 * 得到词典的当前版本。需要同时使用词性表和Trie树时应从同一个版本中读取，
+	 * 分别调用 {@link #getPOSDict()} 和 {@link #getTrie()} 时两者之间可能有修改
+	 * @return 当前版本
 	 */
-	private void createIndex() {
-		indexLen = this.minlen;
-		TreeMap<String, TreeSet<Integer>> indexT = new TreeMap<String, TreeSet<Integer>>();
-		for(String s: dp.keySet()) {
-			if(s.length() < indexLen)
-				continue;
-			String temp = s.substring(0, indexLen);
-			if(indexT.containsKey(temp) == false) {
-				TreeSet<Integer> set = new TreeSet<Integer>();
-				set.add(s.length());
-				indexT.put(temp, set);
-			} else {
-				indexT.get(temp).add(s.length());
-			}
-		}
-		for(Entry<String, TreeSet<Integer>> entry: indexT.entrySet()) {
-			String key = entry.getKey();
-			TreeSet<Integer> set = entry.getValue();
-			int[] ia = new int[set.size()];
-			int i = set.size();
-			for(Integer integer: set) {
-				ia[--i] = integer;
-			}
-			index.put(key, ia);
-		}
+	public Snapshot getSnapshot() {
+		return snapshot();
+	}
+
+	/**
+	 * 得到当前版本的词的双数组Trie树
+	 * @return Trie树，词的编号为按字符串排序的序号
+	 */
+	public DoubleArrayTrie getTrie() {
+		return snapshot().trie;
+	}
+
+	/**
+	 * 当前版本号，词典每次修改后改变，可用来判断缓存的结果是否过期
+	 */
+	public long getVersion() {
+		return snapshot().version;
 	}
 
 	public int getMaxLen() {
@@ -255,23 +385,35 @@ public class Dictionary {
 	}
 
 	public boolean contains(String s) {
-		return dp.containsKey(s);
+		return snapshot().dp.containsKey(s);
 	}
 
+	/**
+	 * 以s开头的词的长度，从大到小排列
+	 * @param s 长度为 {@link #getIndexLen()} 的前缀
+	 * @return 没有时返回null
+	 * @deprecated 词典改用双数组Trie树，用 {@link #getTrie()} 逐字符匹配
+	 */
+	@Deprecated
 	public int[] getIndex(String s) {
-		return index.get(s);
+		return snapshot().index(minlen).get(s);
 	}
 
-	public TreeSet<String> getPOS(String s) {
-		return dp.getSet(s);
+	/**
+	 * {@link #getIndex(String)} 使用的前缀长度，为最短词的长度
+	 * @deprecated 词典改用双数组Trie树，用 {@link #getTrie()} 逐字符匹配
+	 */
+	@Deprecated
+	public int getIndexLen() {
+		return minlen;
 	}
 
-	public int getDictSize() {
-		return dp.size();
+	public TreeSet<String> getPOS(String s) {
+		return snapshot().dp.getSet(s);
 	}
 
-	public int getIndexLen() {
-		return indexLen;
+	public int getDictSize() {
+		return snapshot().dp.size();
 	}
 
 	public boolean isAmbiguity() {
@@ -282,22 +424,35 @@ public class Dictionary {
 		this.ambiguity = ambiguity;
 	}
 
+	/**
+	 * 当前版本的词，只读
+	 */
 	public Set<String> getDict() {
-		return dp.keySet();
+		return snapshot().dp.keySet();
 	}
+	/**
+	 * 当前版本的词和词性，只读
+	 */
 	public MultiValueMap<String, String> getPOSDict() {
-		return dp;
+		return snapshot().dp;
 	}
 
+	/**
+	 * 所有前缀的索引，见 {@link #getIndex(String)}
+	 * @return 当前版本索引的副本
+	 * @deprecated 词典改用双数组Trie树，用 {@link #getTrie()} 逐字符匹配
+	 */
+	@Deprecated
 	public TreeMap<String, int[]> getIndex() {
-		return index;
+		return new TreeMap<String, int[]>(snapshot().index(minlen));
 	}
+
 	public int size(){
-		return dp.size();
+		return snapshot().dp.size();
 	}
 
 	public void save(String path) {
-		MyCollection.writeMultiValueMap(dp, path);
+		MyCollection.writeMultiValueMap(snapshot().dp, path);
 		
 	}
 }
@@ -0,0 +1,96 @@
+package edu.fudan.ml.types;
+
+import java.io.Serializable;
+
+/**
+ * 序列每个位置上允许的标签集合（如词典约束），用位图表示，
+ * 位置l的标签c对应第 l*words+c/64 个long的第c%64位。
+ * 没有设置任何标签的位置不受约束。
+ * @author xpqiu
+ *
+ */
+public final class LabelMask implements Serializable {
+
+	private static final long serialVersionUID = -1735049357412046671L;
+
+	private final long[] bits;
+	/**
+	 * 每个位置占用的long个数
+	 */
+	private final int words;
+	private final int length;
+	private final int labels;
+
+	/**
+	 * @param length 序列长度
+	 * @param labels 标签个数
+	 */
+	public LabelMask(int length, int labels) {
+		this.length = length;
+		this.labels = labels;
+		this.words = Math.max(1, (labels + 63) >>> 6);
+		this.bits = new long[length * words];
+	}
+
+	/**
+	 * 序列长度
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * 标签个数
+	 */
+	public int width() {
+		return labels;
+	}
+
+	/**
+	 * 允许位置l使用标签c
+	 */
+	public void set(int l, int c) {
+		bits[l * words + (c >>> 6)] |= 1L << c;
+	}
+
+	/**
+	 * 位置l上是否有约束
+	 */
+	public boolean isConstrained(int l) {
+		int off = l * words;
+		for (int i = 0; i < words; i++) {
+			if (bits[off + i] != 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 位置l上是否允许标签c，没有约束时总是允许
+	 */
+	public boolean allows(int l, int c) {
+		if (!isConstrained(l))
+			return true;
+		int i = c >>> 6;
+		return i < words && (bits[l * words + i] & (1L << c)) != 0;
+	}
+
+	/**
+	 * 位置l上从c开始的下一个允许的标签，用来只遍历设置的位
+	 * @return 标签，没有时返回-1
+	 */
+	public int nextLabel(int l, int c) {
+		int i = c >>> 6;
+		if (i >= words)
+			return -1;
+		int off = l * words;
+		long w = bits[off + i] & (-1L << c);
+		while (true) {
+			if (w != 0)
+				return (i << 6) + Long.numberOfTrailingZeros(w);
+			if (++i == words)
+				return -1;
+			w = bits[off + i];
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package edu.fudan.ml.types.alphabet;
+
+import java.util.Arrays;
+
+/**
+ * 特征词典压缩：删除权重全为0的特征，其余特征按原顺序重新连续编号。
+ * 每个特征占用的权重为从它的索引到下一个特征的索引之间的部分，
+ * 多个键共用同一索引时一起保留或删除。
+ * @author xpqiu
+ *
+ */
+final class Compactor {
+
+	private Compactor() {
+	}
+
+	/**
+	 * 计算新索引和新权重
+	 * @param index 每个键的当前索引，压缩后改为新索引，删除的为-1
+	 * @param last 特征总数（最后一个特征之后的位置）
+	 * @param weights 按当前索引排列的权重
+	 * @return 按新索引排列的权重
+	 */
+	static float[] compact(int[] index, int last, float[] weights) {
+		int n = index.length;
+		long[] order = new long[n];
+		for (int i = 0; i < n; i++) {
+			//高位为索引，低位为键的位置，排序后即按索引排列
+			order[i] = ((long) index[i] << 32) | i;
+		}
+		Arrays.sort(order);
+
+		float[] buf = new float[Math.min(last, weights.length)];
+		int pos = 0;
+		int i = 0;
+		while (i < n) {
+			int idx = (int) (order[i] >>> 32);
+			int j = i + 1;
+			while (j < n && (int) (order[j] >>> 32) == idx)
+				j++;
+			int end = j < n ? (int) (order[j] >>> 32) : last;
+			end = Math.min(end, weights.length);
+			boolean zero = true;
+			for (int k = idx; k < end; k++) {
+				if (weights[k] != 0) {
+					zero = false;
+					break;
+				}
+			}
+			int newIdx = -1;
+			if (!zero) {
+				System.arraycopy(weights, idx, buf, pos, end - idx);
+				newIdx = pos;
+				pos += end - idx;
+			}
+			for (; i < j; i++)
+				index[(int) order[i]] = newIdx;
+		}
+		return Arrays.copyOf(buf, pos);
+	}
+}
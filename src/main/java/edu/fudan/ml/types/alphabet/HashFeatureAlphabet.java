@@ -1,11 +1,14 @@
 package edu.fudan.ml.types.alphabet;
 
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 
 import edu.fudan.util.hash.AbstractHashCode;
+import edu.fudan.util.hash.IncrementalMurmurHash;
 import edu.fudan.util.hash.MurmurHash;
 
 import gnu.trove.impl.hash.TIntHash;
@@ -34,7 +37,10 @@ public final class HashFeatureAlphabet implements IFeatureAlphabet {
      */
     protected boolean frozen;
 
-    
+    /**
+     * 映射到模型文件的只读数据，先于intdata查找
+     */
+    private transient MappedIntTable table;
 
     /**
      * 最后一个特征的位置
@@ -83,12 +89,24 @@ public final class HashFeatureAlphabet implements IFeatureAlphabet {
             return s;
     }
 
+    /**
+     * 是否可以在外部用 {@link IncrementalMurmurHash} 直接计算特征串的hash值，
+     * 再调用 {@link #lookupIndex(int, int)}，结果与 {@link #lookupIndex(String, int)} 相同。
+     * 只在词典冻结后使用。
+     */
+    public boolean isDirectHash() {
+        return frozen && keyMap == null && hashcode instanceof MurmurHash
+                && IncrementalMurmurHash.isCompatible();
+    }
+
     public int lookupIndex(int code, int indent) {
         if (indent < 1)
             throw new IllegalArgumentException(
                     "Invalid Argument in FeatureAlphabet: " + indent);
 
-        int ret = intdata.get(code);
+        int ret = table != null ? table.get(code) : -1;
+        if (ret == -1)
+            ret = intdata.get(code);
 
         if (ret==-1 && !frozen) {//字典中没有，并且允许插入
 
@@ -108,22 +126,27 @@ public final class HashFeatureAlphabet implements IFeatureAlphabet {
     }
     @Override
     public int keysize() {
-        return intdata.size();
+        return nonZeroSize();
     }
 
     @Override
     public int nonZeroSize() {
-        return this.intdata.size();
+        int n = this.intdata.size();
+        if (table != null)
+            n += table.size();
+        return n;
     }
 
     @Override
     public boolean hasIndex(int id) {
-        return intdata.containsValue(id);
+        return intdata.containsValue(id)
+                || (table != null && table.containsValue(id));
     }
 
     public int remove(String s) {
         String str = checkKeyMap(s);
         int code = hashcode.hashcode(str);
+        checkWritable(code);
         int ret = -1;
         if (intdata.containsKey(code))  {
             ret = intdata.remove(code);
@@ -134,10 +157,17 @@ public final class HashFeatureAlphabet implements IFeatureAlphabet {
     public boolean adjust(String s, int adjust)   {
         String str = checkKeyMap(s);
         int code = hashcode.hashcode(str);
+        checkWritable(code);
         return intdata.adjustValue(code, adjust);
     }
 
+    private void checkWritable(int code) {
+        if (table != null && table.get(code) != -1)
+            throw new UnsupportedOperationException("Mapped feature is read-only.");
+    }
+
     public void clear() {
+        table = null;
         intdata.clear();
         last=0;
         frozen = false;
@@ -175,7 +205,83 @@ public final class HashFeatureAlphabet implements IFeatureAlphabet {
 
     @Override
     public TIntIntIterator iterator() {     
-        return intdata.iterator();
+        if (table == null)
+            return intdata.iterator();
+        final TIntIntHashMap all = new TIntIntHashMap(DEFAULT_CAPACITY,DEFAULT_LOAD_FACTOR,noEntryValue,noEntryValue);
+        table.forEach(new MappedIntTable.Visitor() {
+            public void visit(int key, int value) {
+                all.put(key, value);
+            }
+        });
+        all.putAll(intdata);
+        return all.iterator();
+    }
+
+    /**
+     * 删除权重全为0的特征，其余特征按原顺序重新连续编号。
+     * 映射的数据会被复制到堆中。
+     * @param weights 按当前索引排列的权重
+     * @return 按新索引排列的权重
+     */
+    public float[] compact(float[] weights) {
+        int n = nonZeroSize();
+        int[] keys = new int[n];
+        int[] index = new int[n];
+        TIntIntIterator it = iterator();
+        for (int i = 0; i < n; i++) {
+            it.advance();
+            keys[i] = it.key();
+            index[i] = it.value();
+        }
+        float[] w = Compactor.compact(index, last, weights);
+        TIntIntHashMap newdata = new TIntIntHashMap(DEFAULT_CAPACITY,DEFAULT_LOAD_FACTOR,noEntryValue,noEntryValue);
+        for (int i = 0; i < n; i++) {
+            if (index[i] != -1)
+                newdata.put(keys[i], index[i]);
+        }
+        table = null;
+        intdata = newdata;
+        last = w.length;
+        return w;
+    }
+
+    /**
+     * 复制除数据以外的设置（hash函数、键映射、特征总数等），
+     * 数据单独由 {@link #writeTable(DataOutput)} 写入，载入后由 {@link #setTable(MappedIntTable)} 挂接。
+     * @return 不含数据的特征词典
+     */
+    public HashFeatureAlphabet copyWithoutData() {
+        HashFeatureAlphabet fa = new HashFeatureAlphabet();
+        fa.hashcode = hashcode;
+        fa.keyMap = keyMap;
+        fa.frozen = frozen;
+        fa.last = last;
+        return fa;
+    }
+
+    /**
+     * 数据表写入后的字节数
+     */
+    public long tableSize() {
+        return MappedIntTable.byteSize(nonZeroSize());
+    }
+
+    /**
+     * 将数据写成 {@link MappedIntTable} 格式
+     * @param out 输出
+     * @throws IOException
+     */
+    public void writeTable(DataOutput out) throws IOException {
+        MappedIntTable.write(iterator(), nonZeroSize(), out);
+    }
+
+    /**
+     * 挂接只读数据，并冻结词典
+     * @param table 映射到模型文件的数据
+     */
+    public void setTable(MappedIntTable table) {
+        this.table = table;
+        this.frozen = true;
     }
 
     /**
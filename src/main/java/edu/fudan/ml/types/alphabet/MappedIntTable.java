@@ -0,0 +1,142 @@
+package edu.fudan.ml.types.alphabet;
+
+import gnu.trove.iterator.TIntIntIterator;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * 保存在只读映射内存中的int到int哈希表，开放定址、线性探测。
+ * 格式：容量（2的幂）、元素个数，之后是容量个（键，值）对，值为-1表示空位。
+ * 值必须非负。
+ * @author xpqiu
+ *
+ */
+public final class MappedIntTable {
+
+	private static final int EMPTY = -1;
+
+	private final IntBuffer data;
+	private final int mask;
+	private final int size;
+
+	/**
+	 * 构造函数
+	 * @param buf 由 {@link #write(TIntIntIterator, int, DataOutput)} 写入的数据
+	 */
+	public MappedIntTable(ByteBuffer buf) {
+		IntBuffer ib = buf.asIntBuffer();
+		int capacity = ib.get(0);
+		if (Integer.bitCount(capacity) != 1 || ib.capacity() < 2 + 2 * capacity)
+			throw new IllegalArgumentException("Invalid int table: " + capacity);
+		this.mask = capacity - 1;
+		this.size = ib.get(1);
+		ib.position(2);
+		this.data = ib.slice();
+	}
+
+	/**
+	 * 查找键对应的值
+	 * @param key 键
+	 * @return 值，不存在时返回-1
+	 */
+	public int get(int key) {
+		int i = slot(key, mask);
+		while (true) {
+			int v = data.get(2 * i + 1);
+			if (v == EMPTY || data.get(2 * i) == key)
+				return v;
+			i = (i + 1) & mask;
+		}
+	}
+
+	/**
+	 * 是否包含值
+	 */
+	public boolean containsValue(int value) {
+		for (int i = 0; i <= mask; i++) {
+			if (data.get(2 * i + 1) == value)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 元素个数
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 按槽位顺序遍历
+	 * @param visitor 访问每个（键，值）对
+	 */
+	public void forEach(Visitor visitor) {
+		for (int i = 0; i <= mask; i++) {
+			int v = data.get(2 * i + 1);
+			if (v != EMPTY)
+				visitor.visit(data.get(2 * i), v);
+		}
+	}
+
+	public interface Visitor {
+		void visit(int key, int value);
+	}
+
+	private static int slot(int key, int mask) {
+		int h = key * 0x9e3779b9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	private static int capacity(int size) {
+		int cap = 2;
+		while (cap < size * 2)
+			cap <<= 1;
+		return cap;
+	}
+
+	/**
+	 * 写入的字节数
+	 * @param size 元素个数
+	 */
+	public static long byteSize(int size) {
+		return 8 + 8L * capacity(size);
+	}
+
+	/**
+	 * 写入哈希表
+	 * @param it 键值对
+	 * @param size 元素个数
+	 * @param out 输出
+	 * @throws IOException
+	 */
+	public static void write(TIntIntIterator it, int size, DataOutput out)
+			throws IOException {
+		int cap = capacity(size);
+		int mask = cap - 1;
+		int[] table = new int[2 * cap];
+		for (int i = 0; i < cap; i++)
+			table[2 * i + 1] = EMPTY;
+		int n = 0;
+		while (it.hasNext()) {
+			it.advance();
+			if (it.value() < 0)
+				throw new IllegalArgumentException("Negative value: " + it.value());
+			int i = slot(it.key(), mask);
+			while (table[2 * i + 1] != EMPTY)
+				i = (i + 1) & mask;
+			table[2 * i] = it.key();
+			table[2 * i + 1] = it.value();
+			n++;
+		}
+		if (n != size)
+			throw new IllegalArgumentException("Size mismatch: " + n + " != " + size);
+		out.writeInt(cap);
+		out.writeInt(size);
+		for (int i = 0; i < table.length; i++)
+			out.writeInt(table[i]);
+	}
+}
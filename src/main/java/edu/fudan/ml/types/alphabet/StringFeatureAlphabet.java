@@ -108,6 +108,31 @@ public class StringFeatureAlphabet implements IFeatureAlphabet{
 		return data.iterator();
 	}
 
+	/**
+	 * 删除权重全为0的特征，其余特征按原顺序重新连续编号。
+	 * @param weights 按当前索引排列的权重
+	 * @return 按新索引排列的权重
+	 */
+	public float[] compact(float[] weights) {
+		int n = data.size();
+		String[] keys = new String[n];
+		int[] index = new int[n];
+		TObjectIntIterator<String> it = data.iterator();
+		for (int i = 0; i < n; i++) {
+			it.advance();
+			keys[i] = it.key();
+			index[i] = it.value();
+		}
+		float[] w = Compactor.compact(index, last, weights);
+		data.clear();
+		for (int i = 0; i < n; i++) {
+			if (index[i] != -1)
+				data.put(keys[i], index[i]);
+		}
+		last = w.length;
+		return w;
+	}
+
 	public void clear() {
 		data.clear();
 		last=0;
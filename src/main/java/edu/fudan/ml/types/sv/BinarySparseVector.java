@@ -29,6 +29,17 @@ public class BinarySparseVector implements ISparseVector {
 		return sum;
 	}
 
+	@Override
+	public float dotProduct(WeightVector vector) {
+		TIntIterator it = data.iterator();
+		float sum = 0f;
+		while(it.hasNext()){
+			int i = it.next();
+			sum += vector.get(i);
+		}
+		return sum;
+	}
+
 	@Override
 	public void put(int i) {
 		data.add(i);
@@ -158,6 +158,17 @@ public class HashSparseVector implements ISparseVector {
 		return v;
 	}
 
+	@Override
+	public float dotProduct(WeightVector vector) {
+		float v =0f;
+		TIntFloatIterator it = data.iterator();
+		while(it.hasNext()){
+			it.advance();
+			v += vector.get(it.key())*it.value();
+		}
+		return v;
+	}
+
 	/* (non-Javadoc)
 	 * @see edu.fudan.ml.types.ISparseVector#l2Norm2()
 	 */
@@ -10,6 +10,13 @@ public interface ISparseVector extends Serializable {
 	 * @return
 	 */
 	public float dotProduct(float[] vector);
+
+	/**
+	 * 与只读权重向量的点积
+	 * @param vector
+	 * @return
+	 */
+	public float dotProduct(WeightVector vector);
 	
 	/**
 	 * 
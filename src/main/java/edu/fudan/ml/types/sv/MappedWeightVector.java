@@ -0,0 +1,32 @@
+package edu.fudan.ml.types.sv;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * 保存在只读映射内存中的权重向量，多个进程映射同一模型文件时共享一份页缓存。
+ * @author xpqiu
+ *
+ */
+public final class MappedWeightVector extends WeightVector {
+
+	private final FloatBuffer data;
+
+	/**
+	 * 构造函数
+	 * @param buf 连续存放的float，长度为4的倍数
+	 */
+	public MappedWeightVector(ByteBuffer buf) {
+		this.data = buf.asFloatBuffer();
+	}
+
+	@Override
+	public float get(int i) {
+		return data.get(i);
+	}
+
+	@Override
+	public int size() {
+		return data.capacity();
+	}
+}
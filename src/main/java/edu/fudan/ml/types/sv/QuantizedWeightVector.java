@@ -0,0 +1,129 @@
+package edu.fudan.ml.types.sv;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * 8位量化的权重向量。权重按块（缺省64个）量化，每块保存一个缩放系数，
+ * 第i个权重为 values[i]*scales[i/64]，占用空间约为float数组的1/4。
+ * <pre>
+ * 格式：权重个数(int) 块大小的位数(int) 缩放系数(float*块数) 量化值(byte*权重个数)
+ * </pre>
+ * 数据可以在堆中，也可以映射到模型文件。
+ * @author xpqiu
+ *
+ */
+public final class QuantizedWeightVector extends WeightVector {
+
+	/**
+	 * 缺省块大小为2^6
+	 */
+	public static final int DEFAULT_BLOCK_BITS = 6;
+
+	private final int size;
+	private final int blockBits;
+	private final FloatBuffer scales;
+	private final ByteBuffer values;
+
+	/**
+	 * 构造函数
+	 * @param buf 由 {@link #write(DataOutput)} 写入的数据
+	 */
+	public QuantizedWeightVector(ByteBuffer buf) {
+		buf = buf.duplicate();
+		this.size = buf.getInt(0);
+		this.blockBits = buf.getInt(4);
+		int numBlocks = numBlocks(size, blockBits);
+		if (size < 0 || blockBits < 0 || blockBits > 30
+				|| buf.capacity() < byteSize(size, blockBits))
+			throw new IllegalArgumentException("Invalid quantized weights: "
+					+ size + "/" + blockBits);
+		buf.position(8);
+		buf.limit(8 + 4 * numBlocks);
+		this.scales = buf.slice().asFloatBuffer();
+		buf.limit(8 + 4 * numBlocks + size);
+		buf.position(8 + 4 * numBlocks);
+		this.values = buf.slice();
+	}
+
+	/**
+	 * 用缺省块大小量化
+	 * @param weights 权重
+	 * @return 量化后的权重
+	 */
+	public static QuantizedWeightVector quantize(float[] weights) {
+		return quantize(weights, DEFAULT_BLOCK_BITS);
+	}
+
+	/**
+	 * 量化权重，每块的缩放系数为块内最大绝对值/127
+	 * @param weights 权重
+	 * @param blockBits 块大小的位数
+	 * @return 量化后的权重
+	 */
+	public static QuantizedWeightVector quantize(float[] weights, int blockBits) {
+		int size = weights.length;
+		int numBlocks = numBlocks(size, blockBits);
+		ByteBuffer buf = ByteBuffer.allocate((int) byteSize(size, blockBits));
+		buf.putInt(size);
+		buf.putInt(blockBits);
+		float[] scales = new float[numBlocks];
+		for (int b = 0; b < numBlocks; b++) {
+			int from = b << blockBits;
+			int to = Math.min(size, from + (1 << blockBits));
+			float max = 0;
+			for (int i = from; i < to; i++)
+				max = Math.max(max, Math.abs(weights[i]));
+			scales[b] = max / 127f;
+			buf.putFloat(scales[b]);
+		}
+		for (int i = 0; i < size; i++) {
+			float s = scales[i >>> blockBits];
+			int q = s == 0 ? 0 : Math.round(weights[i] / s);
+			buf.put((byte) Math.max(-127, Math.min(127, q)));
+		}
+		buf.flip();
+		return new QuantizedWeightVector(buf);
+	}
+
+	@Override
+	public float get(int i) {
+		return values.get(i) * scales.get(i >>> blockBits);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 写入的字节数
+	 */
+	public long byteSize() {
+		return byteSize(size, blockBits);
+	}
+
+	/**
+	 * 写入量化数据
+	 * @param out 输出
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(size);
+		out.writeInt(blockBits);
+		for (int b = 0; b < scales.capacity(); b++)
+			out.writeFloat(scales.get(b));
+		for (int i = 0; i < size; i++)
+			out.writeByte(values.get(i));
+	}
+
+	private static int numBlocks(int size, int blockBits) {
+		return (size + (1 << blockBits) - 1) >>> blockBits;
+	}
+
+	private static long byteSize(int size, int blockBits) {
+		return 8 + 4L * numBlocks(size, blockBits) + size;
+	}
+}
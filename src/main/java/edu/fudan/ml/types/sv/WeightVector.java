@@ -0,0 +1,33 @@
+package edu.fudan.ml.types.sv;
+
+/**
+ * 只读的稠密权重向量，用于权重不以float[]形式保存在堆中的情况（如映射到模型文件）。
+ * 实现类的 {@link #get(int)} 必须可以被多个线程同时调用。
+ * @author xpqiu
+ *
+ */
+public abstract class WeightVector {
+
+	/**
+	 * 得到第i个权重
+	 * @param i 下标
+	 * @return 权重
+	 */
+	public abstract float get(int i);
+
+	/**
+	 * 权重个数
+	 */
+	public abstract int size();
+
+	/**
+	 * 复制到数组
+	 * @return 权重数组
+	 */
+	public float[] toArray() {
+		float[] w = new float[size()];
+		for (int i = 0; i < w.length; i++)
+			w[i] = get(i);
+		return w;
+	}
+}
@@ -13,6 +13,7 @@ import edu.fudan.nlp.cn.tag.POSTagger;
 import edu.fudan.nlp.parser.dep.DependencyTree;
 import edu.fudan.nlp.parser.dep.JointParser;
 import edu.fudan.nlp.parser.dep.TreeCache;
+import edu.fudan.util.ResultCache;
 
 /**
  * 统一的自然语言处理入口
@@ -31,6 +32,10 @@ public class CNFactory {
     public static NERTagger ner;
     public static JointParser parser;
     public static TreeCache treeCache;
+    /**
+     * 句子级结果缓存，为null时不使用，见 {@link #setCache(int, ResultCache.Policy)}
+     */
+    public static ResultCache<String, Object> cache;
 
     public static String segModel = "/seg.m";
     public static String posModel = "/pos.m";
@@ -47,16 +52,12 @@ public class CNFactory {
      * @param path
      */
     public static void loadDict(String... path) {
-        for (String file : path) {
-            dict.addFile(file);
-        }
+        dict.addFile(path);
         setDict();
     }
 
     public static void loadDict(List<String> paths) {
-        for (String file : paths) {
-            dict.addFile(file);
-        }
+        dict.addFile(paths.toArray(new String[paths.size()]));
         setDict();
     }
 
@@ -86,23 +87,97 @@ public class CNFactory {
      * @param pos
      */
     public static void addDict(Collection<String> words, String pos) {
-        for (String w : words) {
-            dict.add(w, pos);
-        }
+        dict.add(words, pos);
         setDict();
     }
 
+    /**
+     * 启用句子级结果缓存，seg、tag、tag2String和parse2T的结果按输入文本缓存，
+     * 词典修改（版本号改变）、替换seg、pos、parser或调用setEnFilter后缓存的结果自动失效，
+     * 直接修改标注器的设置（如CWSTagger.setEnFilter）后需要重新调用本方法
+     *
+     * @param capacity 最多缓存的句子数
+     * @param policy 淘汰策略
+     */
+    public static void setCache(int capacity, ResultCache.Policy policy) {
+        cache = new ResultCache<String, Object>(capacity, policy);
+    }
+
+    /**
+     * 停用结果缓存
+     */
+    public static void removeCache() {
+        cache = null;
+    }
+
+    /**
+     * 生成缓存结果时的模型、词典和设置
+     */
+    private static final class CacheState {
+        final CWSTagger seg;
+        final POSTagger pos;
+        final JointParser parser;
+        final long dictVersion;
+        final long version;
+
+        CacheState(CWSTagger seg, POSTagger pos, JointParser parser, long dictVersion, long version) {
+            this.seg = seg;
+            this.pos = pos;
+            this.parser = parser;
+            this.dictVersion = dictVersion;
+            this.version = version;
+        }
+    }
+
+    private static volatile CacheState cacheState = new CacheState(null, null, null, 0, 0);
+
+    /**
+     * 缓存结果的版本，模型被替换、词典修改或设置改变时加一
+     */
+    private static long cacheVersion() {
+        Dictionary d = dict;
+        long dv = d == null ? 0 : d.getVersion();
+        CacheState st = cacheState;
+        if (st.seg == seg && st.pos == pos && st.parser == parser && st.dictVersion == dv)
+            return st.version;
+        return updateCacheState(dv, false);
+    }
+
+    private static synchronized long updateCacheState(long dictVersion, boolean force) {
+        CacheState st = cacheState;
+        if (force || st.seg != seg || st.pos != pos || st.parser != parser || st.dictVersion != dictVersion) {
+            st = new CacheState(seg, pos, parser, dictVersion, st.version + 1);
+            cacheState = st;
+        }
+        return st.version;
+    }
+
+    /**
+     * 模型或设置改变时清空缓存
+     */
+    private static void clearCache() {
+        updateCacheState(cacheState.dictVersion, true);
+        ResultCache<String, Object> c = cache;
+        if (c != null)
+            c.clear();
+    }
+
     /**
      * 更新词典
+     * 词典修改时整体替换为新版本，已经在使用该词典的标注器立即看到修改，
+     * 这里只在第一次使用时设置，不重建标注器的Pipe
      */
     public static void setDict() {
         if (dict == null || dict.size() == 0) {
             return;
         }
         if (pos != null) {
-            pos.setDictionary(dict, true);
+            if (pos.getDictionary() != dict
+                    || (pos.cws != null && pos.cws.getDictionary() != dict))
+                pos.setDictionary(dict, true);
         } else if (seg != null) {
-            seg.setDictionary(dict);
+            if (seg.getDictionary() != dict)
+                seg.setDictionary(dict);
         }
     }
 
@@ -359,6 +434,7 @@ public class CNFactory {
         if (parser == null) {
             String file = path + parseModel;
             parser = new JointParser(file);
+            clearCache();
         }
     }
 
@@ -384,6 +460,7 @@ public class CNFactory {
             } else {
                 pos = new POSTagger(seg, file);
             }
+            clearCache();
         }
     }
 
@@ -400,6 +477,7 @@ public class CNFactory {
             String file = path + segModel;
             seg = new CWSTagger(file);
             seg.setEnFilter(isEnFilter);
+            clearCache();
         }
     }
 
@@ -413,7 +491,46 @@ public class CNFactory {
         if (seg == null) {
             return null;
         }
-        return seg.tag2Array(input);
+        ResultCache<String, Object> c = cache;
+        if (c == null || input == null)
+            return seg.tag2Array(input);
+        String key = "seg\u0001" + input;
+        long version = cacheVersion();
+        String[] res = (String[]) c.get(key, version);
+        if (res == null) {
+            res = seg.tag2Array(input);
+            if (res == null)
+                return null;
+            c.put(key, version, res);
+        }
+        return res.clone();
+    }
+
+    /**
+     * 分词，只得到词的起止位置
+     *
+     * @param input 字符串
+     * @return 词的起止位置，见 {@link CWSTagger#segmentOffsets(CharSequence)}，没有分词模型时返回null
+     */
+    public int[] segOffsets(String input) {
+        CWSTagger s = seg;
+        if (s == null || input == null)
+            return null;
+        return s.segmentOffsets(input);
+    }
+
+    /**
+     * 标注由起止位置给出的词的词性
+     *
+     * @param input 字符串
+     * @param spans 词的起止位置，见 {@link #segOffsets(String)}
+     * @return 词性数组，没有词性标注模型时返回null
+     */
+    public String[] tagOffsets(String input, int[] spans) {
+        POSTagger p = pos;
+        if (p == null || input == null)
+            return null;
+        return p.tagOffsets(input, spans);
     }
 
     /**
@@ -437,7 +554,22 @@ public class CNFactory {
     public String[][] tag(String input) {
         if (pos == null || seg == null)
             return null;
-        return pos.tag2Array(input);
+        ResultCache<String, Object> c = cache;
+        if (c == null || input == null)
+            return pos.tag2Array(input);
+        String key = "tag\u0001" + input;
+        long version = cacheVersion();
+        String[][] res = (String[][]) c.get(key, version);
+        if (res == null) {
+            res = pos.tag2Array(input);
+            if (res == null)
+                return null;
+            c.put(key, version, res);
+        }
+        String[][] copy = new String[res.length][];
+        for (int i = 0; i < res.length; i++)
+            copy[i] = res[i].clone();
+        return copy;
     }
 
     /**
@@ -449,7 +581,18 @@ public class CNFactory {
     public String tag2String(String input) {
         if (pos == null || seg == null)
             return null;
-        return pos.tag(input);
+        ResultCache<String, Object> c = cache;
+        if (c == null || input == null)
+            return pos.tag(input);
+        String key = "tag2String\u0001" + input;
+        long version = cacheVersion();
+        String res = (String) c.get(key, version);
+        if (res == null) {
+            res = pos.tag(input);
+            if (res != null)
+                c.put(key, version, res);
+        }
+        return res;
     }
 
     /**
@@ -495,7 +638,23 @@ public class CNFactory {
 
         if (words == null || pos == null || words.length == 0 || pos.length == 0 || words.length != pos.length)
             return null;
-        return parser.parse2T(words, pos);
+        ResultCache<String, Object> c = cache;
+        if (c == null)
+            return parser.parse2T(words, pos);
+        StringBuilder sb = new StringBuilder("parse");
+        for (int i = 0; i < words.length; i++)
+            sb.append('\u0001').append(words[i]).append('\u0002').append(pos[i]);
+        String key = sb.toString();
+        long version = cacheVersion();
+        DependencyTree tree = (DependencyTree) c.get(key, version);
+        if (tree == null) {
+            tree = parser.parse2T(words, pos);
+            if (tree == null)
+                return null;
+            c.put(key, version, tree);
+        }
+        //缓存中的树不交给调用者修改
+        return tree.copy();
     }
 
     /**
@@ -528,6 +687,7 @@ public class CNFactory {
 
     public static void setEnFilter(boolean b) {
         isEnFilter = b;
+        clearCache();
     }
 
     public static void setAmbiguity(boolean ambiguity) {
@@ -536,6 +696,9 @@ public class CNFactory {
 
     public static void readDepCache(String file) throws IOException {
         treeCache = new TreeCache();
-        treeCache.read(file);
+        if (TreeCache.isSnapshot(file))
+            treeCache.load(file);
+        else
+            treeCache.read(file);
     }
 }
\ No newline at end of file
@@ -166,12 +166,25 @@ public class Chars {
 	 * @see Chars#char2StringType(CharType)
 	 */
 	public static StringType getStringType(String str) {
-		TreeSet<CharType> set = getTypeSet(str);
-		if(set.size()==1){
-			CharType c = set.first();
-			return char2StringType(c);
+		return getStringType(str, 0, str.length());
+	}
+	/**
+	 * 得到字符串中[start,end)一段的类型，不生成新的字符串
+	 * @param str
+	 * @param start
+	 * @param end
+	 * @return
+	 * @see Chars#getStringType(String)
+	 */
+	public static StringType getStringType(CharSequence str, int start, int end) {
+		if(start>=end)
+			return StringType.M;
+		int t = TABLE[str.charAt(start)] & TYPE_MASK;
+		for(int i=start+1;i<end;i++){
+			if((TABLE[str.charAt(i)] & TYPE_MASK) != t)
+				return StringType.M;
 		}
-		return StringType.M;		
+		return char2StringType(TYPES[t]);
 	}
 	/**
 	 * 得到字符串中所有出现的字符类型集合
@@ -196,19 +209,24 @@ public class Chars {
 	}
 
 	public static boolean isLetterOrDigitOrPunc(char ch) {
-		int i = Character.getType(ch);
-		return Character.isLowerCase(ch) || Character.isUpperCase(ch)
-		 || Character.isDigit(ch)
-				|| (i>=20&&i<=30); 
+		return (TABLE[ch] & LETTER_DIGIT_PUNC) != 0;
 		//TODO:可以修改为Java7中的isLetterOrDigit
-		
-		
 	}
 	
 	static Pattern PattLDP = Pattern.compile("(\\w|\\pP|\\pS|\\s)+");
 	
 	public static boolean isLetterOrDigitOrPunc(String str) {
-		return PattLDP.matcher(str).matches();  
+		if(str.length()==0)
+			return false;
+		for(int i=0;i<str.length();i++){
+			char c = str.charAt(i);
+			//代理对按码点匹配
+			if(c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)
+				return PattLDP.matcher(str).matches();
+			if((TABLE[c] & LDP) == 0)
+				return false;
+		}
+		return true;
 		//TODO:可以修改为Java7中的isLetterOrDigit
 	}
 	/**
@@ -217,9 +235,10 @@ public class Chars {
 	 * @return
 	 */
 	public static boolean isPunc(String str) {
-
-			return PattP.matcher(str).matches();  
-			//TODO:可以修改为Java7中的isLetterOrDigit
+		if(str.length()==1)
+			return (TABLE[str.charAt(0)] & PUNC) != 0;
+		return PattP.matcher(str).matches();  
+		//TODO:可以修改为Java7中的isLetterOrDigit
 	}
 	
 
@@ -239,12 +258,67 @@ public class Chars {
 	}
 	
 	static Pattern PattP = Pattern.compile("\\pP|\\pS");
+
+	/**
+	 * 字符类型表，每个字符一项：低3位为CharType的序号，其余位为下面的标志
+	 */
+	private static final byte[] TABLE = new byte[65536];
+	private static final CharType[] TYPES = CharType.values();
+	private static final int TYPE_MASK = 0x07;
+	/**
+	 * 标点或符号，即PattP
+	 */
+	private static final int PUNC = 0x08;
+	/**
+	 * PattLDP中的单个字符
+	 */
+	private static final int LDP = 0x10;
+	/**
+	 * isLetterOrDigitOrPunc(char)
+	 */
+	private static final int LETTER_DIGIT_PUNC = 0x20;
+
+	static {
+		for (int c = 0; c < TABLE.length; c++) {
+			char ch = (char) c;
+			int type = Character.getType(ch);
+			int flags = computeType(ch).ordinal();
+			boolean punc = type >= 20 && type <= 30;
+			if (punc)
+				flags |= PUNC;
+			if (punc || (c < 128 && (Character.isLetterOrDigit(ch) || ch == '_'))
+					|| ch == ' ' || (ch >= '\t' && ch <= '\r'))
+				flags |= LDP;
+			if (punc || Character.isLowerCase(ch) || Character.isUpperCase(ch)
+					|| Character.isDigit(ch))
+				flags |= LETTER_DIGIT_PUNC;
+			TABLE[c] = (byte) flags;
+		}
+	}
+
 	/**
 	 * 判断字符类型
 	 * @param c 字符
 	 * @return
 	 */
 	public static CharType getType(char c) {
+		return TYPES[TABLE[c] & TYPE_MASK];
+	}
+
+	/**
+	 * 判断字符串中第i个字符的类型，不生成新的字符串
+	 * @param str 字符串
+	 * @param i 位置
+	 * @return
+	 */
+	public static CharType getType(CharSequence str, int i) {
+		return TYPES[TABLE[str.charAt(i)] & TYPE_MASK];
+	}
+
+	/**
+	 * 计算字符类型，用于建立类型表
+	 */
+	private static CharType computeType(char c) {
 		CharType tag;
 		int type = Character.getType(c);
 		if (Character.isLowerCase(c)||Character.isUpperCase(c)){
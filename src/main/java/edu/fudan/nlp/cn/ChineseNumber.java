@@ -0,0 +1,410 @@
+package edu.fudan.nlp.cn;
+
+/**
+ * 将文本中用汉字表示的数字转化为阿拉伯数字，如"一千两百"转化为"1200"，"二零一二"转化为"2012"。
+ * 支持"两万三"、"三千五"等省略末位单位的说法，以及"星期天"、"周日"转化为"星期7"、"周7"。
+ * 用有限状态的方法从左到右扫描一遍完成，不使用正则表达式，可直接处理char[]。
+ * 转化结果与原来逐条正则替换的实现（见 {@link edu.fudan.nlp.cn.ner.stringPreHandlingModule#numberTranslator(String)}）一致，
+ * 规范的数字表达支持的范围超过0-99999999，数字之间夹杂的非规范组合（如"3百12十"）不保证一致。
+ * @author xpqiu
+ *
+ */
+public final class ChineseNumber {
+
+	/**
+	 * 字符对应的数字，"零一二两三四五六七八九"和"0-9"，其余为-1
+	 */
+	private static final byte[] DIGIT = new byte[65536];
+
+	static {
+		for (int i = 0; i < DIGIT.length; i++)
+			DIGIT[i] = -1;
+		String cn = "零一二三四五六七八九";
+		for (int i = 0; i < cn.length(); i++) {
+			DIGIT[cn.charAt(i)] = (byte) i;
+			DIGIT['0' + i] = (byte) i;
+		}
+		DIGIT['两'] = 2;
+	}
+
+	private ChineseNumber() {
+	}
+
+	/**
+	 * 字符对应的数字
+	 * @return 0-9，不是数字时返回-1
+	 */
+	public static int digit(char c) {
+		return DIGIT[c];
+	}
+
+	/**
+	 * 单位"十百千万"对应的数值
+	 * @return 不是单位时返回0
+	 */
+	public static int unit(char c) {
+		switch (c) {
+		case '十':
+			return 10;
+		case '百':
+			return 100;
+		case '千':
+			return 1000;
+		case '万':
+			return 10000;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * 转化字符串中所有用汉字表示的数字
+	 * @param text 待转化的字符串
+	 * @return 转化后的字符串，没有需要转化的字符时返回原字符串
+	 */
+	public static String translate(String text) {
+		int len = text.length();
+		int i = 0;
+		while (i < len && !isNumeral(text.charAt(i)))
+			i++;
+		if (i == len)
+			return text;
+		char[] c = text.toCharArray();
+		StringBuilder sb = new StringBuilder(len + 8);
+		translate(c, 0, len, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * 转化char[]的一段，结果追加到sb
+	 * @param c 字符数组
+	 * @param off 起始位置
+	 * @param len 长度
+	 * @param sb 结果
+	 */
+	public static void translate(char[] c, int off, int len, StringBuilder sb) {
+		new Scanner(c, off, off + len, sb).run();
+	}
+
+	private static boolean isNumeral(char c) {
+		return DIGIT[c] >= 0 || unit(c) > 0 || c == '天' || c == '日';
+	}
+
+	/**
+	 * 一个数由若干位数字和单位组成，扫描时的状态为：
+	 * 已完成的万以上部分high、万以下部分section、最近的单位last，
+	 * 以及还没有遇到单位的连续数字 [pStart, pStart+pLen)。
+	 * 没有单位的数按原样输出每一位（如"零零七"为"007"），有单位的数输出数值。
+	 */
+	private static final class Scanner {
+
+		private final char[] c;
+		private final int off;
+		private final int end;
+		private final StringBuilder sb;
+
+		/**
+		 * 是否正在读一个数
+		 */
+		private boolean active;
+		private boolean hasUnit;
+		private boolean hasWan;
+		private long high;
+		private long section;
+		private int last;
+		/**
+		 * 当前的数中最大的单位
+		 */
+		private int top;
+		private int pStart;
+		private int pLen;
+		private long pVal;
+
+		Scanner(char[] c, int off, int end, StringBuilder sb) {
+			this.c = c;
+			this.off = off;
+			this.end = end;
+			this.sb = sb;
+		}
+
+		void run() {
+			for (int i = off; i < end; i++) {
+				char ch = c[i];
+				int d = DIGIT[ch];
+				if (d >= 0) {
+					//单位后的数字最多为单位的位数，如"十二三"为"12"和"3"
+					if (hasUnit && pLen == width(last))
+						flush();
+					if (pLen == 0)
+						pStart = i;
+					active = true;
+					pVal = pVal * 10 + d;
+					pLen++;
+					continue;
+				}
+				int u = unit(ch);
+				if (u == 10000)
+					i = wan(i);
+				else if (u > 0)
+					i = smallUnit(i, u);
+				else if ((ch == '天' || ch == '日') && afterWeek(i)) {
+					//星期天为7，可以与后面的数字相连，如"星期天万"为"星期70000"
+					if (hasUnit)
+						flush();
+					if (pLen == 0)
+						pStart = i;
+					active = true;
+					pVal = pVal * 10 + 7;
+					pLen++;
+				} else {
+					flush();
+					sb.append(ch);
+				}
+			}
+			flush();
+		}
+
+		/**
+		 * 十、百、千
+		 * @return 处理到的位置
+		 */
+		private int smallUnit(int i, int u) {
+			//"周三十"中的"三"属于星期，不与"十"结合
+			if (pLen == 1 && u == 10 && !hasUnit && afterWeek(pStart))
+				flush();
+			if (hasUnit && last <= u) {
+				//"十二百"中的"十二"先成为12，再取最后一位与"百"结合
+				if (u > 10 && !hasWan && top < u)
+					return digitsBefore(i, u);
+				//如"三十五十"为"35"和"10"
+				flush();
+			}
+			if (pLen == 0) {
+				if (u == 10 && !afterWeek(i))
+					return apply(i, u, 1);
+				flush();
+				sb.append(c[i]);
+				return i;
+			}
+			int ld = digitAt(pStart + pLen - 1);
+			if (u != 10 && ld == 0) {
+				flush();
+				sb.append(c[i]);
+				return i;
+			}
+			//数中间"零"后的省略说法，如"两万零六百五"，展开为数字后接在前面的单位之后，即"两万0650"
+			if (hasUnit && pLen > 1 && digitAt(pStart + pLen - 2) == 0) {
+				int d = abbrDigit(i, u);
+				if (d != 0 && zeroAbbr(i, ld * u + d * (u / 10), width(u) + 1))
+					return i + 1;
+			}
+			//单位前只取一位数字，其前的一个"零"被略去（省略说法除外），更前面的数字单独成为一个数
+			int k = pLen > 1 && digitAt(pStart + pLen - 2) == 0 && abbrDigit(i, u) == 0 ? 2 : 1;
+			if (pLen > k) {
+				pLen -= k;
+				pVal /= k == 2 ? 100 : 10;
+				flush();
+			}
+			return apply(i, u, ld);
+		}
+
+		/**
+		 * 把省略说法的值v作为连续数字，代替待定数字的最后一位接在当前单位之后：
+		 * 只取单位的位数，超出的部分为"零"时单独成为一个数，如"一万零三千五"为"10350"和"0"
+		 * @param i 单位的位置
+		 * @param v 省略说法的值
+		 * @param n v的位数
+		 * @return 是否已处理，超出的部分不全为"零"时返回false
+		 */
+		private boolean zeroAbbr(int i, long v, int n) {
+			int r = pLen - 1 + n - width(last);
+			if (r < 0)
+				return false;
+			long p = pow10(r);
+			int z = pStart + pLen - 1 - r;
+			if (v % p != 0 || z < pStart)
+				return false;
+			for (int j = z; j < pStart + pLen - 1; j++) {
+				if (digitAt(j) != 0)
+					return false;
+			}
+			pVal = pVal / 10 * pow10(n - r) + v / p;
+			flush();
+			if (r > 0) {
+				active = true;
+				pStart = z;
+				pLen = r;
+				//超出的"零"与后面的数字不相连，先输出
+				if (i + 2 < end && DIGIT[c[i + 2]] >= 0)
+					flush();
+			}
+			return true;
+		}
+
+		/**
+		 * 单位u的倍数为一位数字d
+		 * @return 处理到的位置
+		 */
+		private int apply(int i, int u, int d) {
+			if (!hasUnit)
+				top = u;
+			section += (d == 0 ? 1 : d) * u;
+			pLen = 0;
+			pVal = 0;
+			last = u;
+			hasUnit = true;
+			active = true;
+			return abbr(i, u);
+		}
+
+		/**
+		 * 把当前的数作为连续数字，只取最后一位作为单位u的倍数
+		 * @return 处理到的位置
+		 */
+		private int digitsBefore(int i, int u) {
+			String v = Long.toString(section + pVal);
+			int n = v.length();
+			int d = v.charAt(n - 1) - '0';
+			if (d == 0) {
+				flush();
+				sb.append(c[i]);
+				return i;
+			}
+			int k = n > 1 && v.charAt(n - 2) == '0' ? 2 : 1;
+			sb.append(v, 0, n - k);
+			reset();
+			return apply(i, u, d);
+		}
+
+		/**
+		 * 万，其前的数字全部作为万的倍数
+		 * @return 处理到的位置
+		 */
+		private int wan(int i) {
+			if (hasWan)
+				flush();
+			if (pLen == 0 && section == 0) {
+				flush();
+				sb.append(c[i]);
+				return i;
+			}
+			high = (section + pVal) * 10000;
+			section = 0;
+			pLen = 0;
+			pVal = 0;
+			last = 10000;
+			hasUnit = true;
+			hasWan = true;
+			return abbr(i, 10000);
+		}
+
+		/**
+		 * 省略末位单位的说法，如"两万三"、"三千五"、"两百三"：
+		 * 单位前后各是一位非零数字，且后一位数字后不是更小的单位
+		 * @return 处理到的位置
+		 */
+		private int abbr(int i, int u) {
+			int d = abbrDigit(i, u);
+			if (d == 0)
+				return i;
+			int next = i + 2 < end ? unit(c[i + 2]) : 0;
+			section += d * (u / 10);
+			//省略说法之后只能再接万，如"三千五万"、"四万八万"
+			if (next != 10000) {
+				flush();
+			} else if (u == 10000) {
+				section += high;
+				high = 0;
+				hasWan = false;
+			} else if (hasWan) {
+				flush();
+			}
+			return i + 1;
+		}
+
+		/**
+		 * 位置i的单位u是否为省略末位单位的说法
+		 * @return 单位后的数字，不是时返回0
+		 */
+		private int abbrDigit(int i, int u) {
+			if (u == 10 || i - 1 < off || DIGIT[c[i - 1]] <= 0 || i + 1 >= end)
+				return 0;
+			int d = DIGIT[c[i + 1]];
+			if (d <= 0)
+				return 0;
+			int next = i + 2 < end ? unit(c[i + 2]) : 0;
+			if (next > 0 && next < u)
+				return 0;
+			return d;
+		}
+
+		/**
+		 * 位置i的前面是否为"周"或"星期"
+		 */
+		private boolean afterWeek(int i) {
+			if (i - 1 < off)
+				return false;
+			if (c[i - 1] == '周')
+				return true;
+			return i - 2 >= off && c[i - 1] == '期' && c[i - 2] == '星';
+		}
+
+		/**
+		 * 连续数字中第j个字符的数值，其中的"天"、"日"为星期天
+		 */
+		private int digitAt(int j) {
+			int d = DIGIT[c[j]];
+			return d >= 0 ? d : 7;
+		}
+
+		/**
+		 * 输出当前的数
+		 */
+		private void flush() {
+			if (!active)
+				return;
+			if (hasUnit) {
+				sb.append(high + section + pVal);
+			} else {
+				for (int j = pStart; j < pStart + pLen; j++)
+					sb.append((char) ('0' + digitAt(j)));
+			}
+			reset();
+		}
+
+		private void reset() {
+			active = false;
+			hasUnit = false;
+			hasWan = false;
+			high = 0;
+			section = 0;
+			last = 0;
+			top = 0;
+			pLen = 0;
+			pVal = 0;
+		}
+
+		private static long pow10(int k) {
+			long p = 1;
+			while (k-- > 0)
+				p *= 10;
+			return p;
+		}
+
+		/**
+		 * 单位后最多可接的数字个数
+		 */
+		private static int width(int u) {
+			switch (u) {
+			case 10:
+				return 1;
+			case 100:
+				return 2;
+			case 1000:
+				return 3;
+			default:
+				return 4;
+			}
+		}
+	}
+}
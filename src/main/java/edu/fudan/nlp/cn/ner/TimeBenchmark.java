@@ -0,0 +1,74 @@
+package edu.fudan.nlp.cn.ner;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 时间表达式识别 {@link TimeNormalizer#parse(String, String)} 的吞吐量测试，
+ * 语料每行一篇文本（如新闻）。
+ * 测试：java edu.fudan.nlp.cn.ner.TimeBenchmark model_file corpus_file [rounds]
+ * @author xpqiu
+ *
+ */
+public class TimeBenchmark {
+
+	/**
+	 * 固定的基准时间，使每遍的结果相同
+	 */
+	private static final String TIME_BASE = "2012-11-14-12-00-00";
+
+	private static List<String> load(String file) throws Exception {
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				new FileInputStream(file), "utf8"));
+		List<String> docs = new ArrayList<String>();
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.length() > 0)
+				docs.add(line);
+		}
+		in.close();
+		return docs;
+	}
+
+	/**
+	 * 识别所有文本一遍
+	 * @return 识别出的时间表达式个数
+	 */
+	private static int run(TimeNormalizer normalizer, List<String> docs) {
+		int n = 0;
+		for (String doc : docs)
+			n += normalizer.parse(doc, TIME_BASE).length;
+		return n;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: TimeBenchmark model_file corpus_file [rounds]");
+			return;
+		}
+		TimeNormalizer normalizer = new TimeNormalizer(args[0]);
+		List<String> docs = load(args[1]);
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		long chars = 0;
+		for (String doc : docs)
+			chars += doc.length();
+		System.out.println("Docs: " + docs.size() + "\tChars: " + chars);
+
+		//预热
+		int units = 0;
+		for (int r = 0; r < rounds; r++)
+			units = run(normalizer, docs);
+		long start = System.nanoTime();
+		for (int r = 0; r < rounds; r++)
+			run(normalizer, docs);
+		double sec = (System.nanoTime() - start) / 1e9 / rounds;
+		System.out.println("Time units: " + units);
+		System.out.printf("time(ms)\tdocs/s\tchars/s\tunits/s%n");
+		System.out.printf("%.1f\t%.0f\t%.0f\t%.0f%n", sec * 1000, docs.size() / sec,
+				chars / sec, units / sec);
+	}
+}
@@ -128,8 +128,8 @@ public class TimeNormalizer   implements Serializable {
 	 * 待匹配字符串的清理空白符和语气助词以及大写数字转化的预处理
 	 */
 	private void preHandling(){
-		target = stringPreHandlingModule.delKeyword(target, "\\s+"); //清理空白符
-		target = stringPreHandlingModule.delKeyword(target, "[的]+"); //清理语气助词
+		target = stringPreHandlingModule.delKeyword(target, stringPreHandlingModule.BLANK); //清理空白符
+		target = stringPreHandlingModule.delKeyword(target, stringPreHandlingModule.AUXILIARY); //清理语气助词
 		target = stringPreHandlingModule.numberTranslator(target);//大写数字转化
 	}
 
@@ -44,6 +44,80 @@ public class TimeUnit
 	TimeNormalizer normalizer = null;
 	public TimePoint _tp=new TimePoint();
 	public TimePoint _tp_origin=new TimePoint();
+	/*
+	 * 规范化使用的正则表达式，只编译一次
+	 */
+	private static final Pattern YEAR2 = Pattern.compile("[0-9]{2}(?=年)");
+	private static final Pattern YEAR4 = Pattern.compile("[0-9]?[0-9]{3}(?=年)");
+	private static final Pattern MONTH = Pattern.compile("((10)|(11)|(12)|([1-9]))(?=月)");
+	private static final Pattern DAY = Pattern.compile("((?<!\\d))([0-3][0-9]|[1-9])(?=(日|号))");
+	private static final Pattern HOUR = Pattern.compile("(?<!(周|星期))([0-2]?[0-9])(?=(点|时))");
+	private static final Pattern MINUTE = Pattern.compile("([0-5]?[0-9](?=分(?!钟)))|((?<=((?<!小)[点时]))[0-5]?[0-9](?!刻))");
+	private static final Pattern QUARTER1 = Pattern.compile("(?<=[点时])[1一]刻(?!钟)");
+	private static final Pattern HALF = Pattern.compile("(?<=[点时])半");
+	private static final Pattern QUARTER3 = Pattern.compile("(?<=[点时])[3三]刻(?!钟)");
+	private static final Pattern SECOND = Pattern.compile("([0-5]?[0-9](?=秒))|((?<=分)[0-5]?[0-9])");
+	private static final Pattern HMS = Pattern.compile("(?<!(周|星期))([0-2]?[0-9]):[0-5]?[0-9]:[0-5]?[0-9]");
+	private static final Pattern HM = Pattern.compile("(?<!(周|星期))([0-2]?[0-9]):[0-5]?[0-9]");
+	private static final Pattern YMD_DASH = Pattern.compile("[0-9]?[0-9]?[0-9]{2}-((10)|(11)|(12)|([1-9]))-((?<!\\d))([0-3][0-9]|[1-9])");
+	private static final Pattern MDY_SLASH = Pattern.compile("((10)|(11)|(12)|([1-9]))/((?<!\\d))([0-3][0-9]|[1-9])/[0-9]?[0-9]?[0-9]{2}");
+	private static final Pattern YMD_DOT = Pattern.compile("[0-9]?[0-9]?[0-9]{2}\\.((10)|(11)|(12)|([1-9]))\\.((?<!\\d))([0-3][0-9]|[1-9])");
+	private static final Pattern DAYS_BEFORE = Pattern.compile("\\d+(?=天[以之]?前)");
+	private static final Pattern DAYS_AFTER = Pattern.compile("\\d+(?=天[以之]?后)");
+	private static final Pattern MONTHS_BEFORE = Pattern.compile("\\d+(?=(个)?月[以之]?前)");
+	private static final Pattern MONTHS_AFTER = Pattern.compile("\\d+(?=(个)?月[以之]?后)");
+	private static final Pattern YEARS_BEFORE = Pattern.compile("\\d+(?=年[以之]?前)");
+	private static final Pattern YEARS_AFTER = Pattern.compile("\\d+(?=年[以之]?后)");
+	private static final Pattern WEEK_LAST2 = Pattern.compile("(?<=(上上(周|星期)))[1-7]");
+	private static final Pattern WEEK_LAST = Pattern.compile("(?<=((?<!上)上(周|星期)))[1-7]");
+	private static final Pattern WEEK_NEXT = Pattern.compile("(?<=((?<!下)下(周|星期)))[1-7]");
+	private static final Pattern WEEK_NEXT2 = Pattern.compile("(?<=(下下(周|星期)))[1-7]");
+	private static final Pattern WEEK_THIS = Pattern.compile("(?<=((?<!(上|下))(周|星期)))[1-7]");
+
+	/*
+	 * 时间表达式中出现的关键字，由 keywords() 一遍扫描得到，
+	 * 与原来的正则表达式一一对应，注释中为对应的正则表达式
+	 */
+	private static final int NOON = 1;			//(中午)|(午间)
+	private static final int AFTERNOON = 1 << 1;	//(下午)|(午后)|(pm)|(PM)
+	private static final int NIGHT = 1 << 2;		//晚
+	private static final int QIANNIAN = 1 << 3;	//前年
+	private static final int QUNIAN = 1 << 4;		//去年
+	private static final int JINNIAN = 1 << 5;		//今年
+	private static final int MINGNIAN = 1 << 6;	//明年
+	private static final int HOUNIAN = 1 << 7;		//后年
+	private static final int SHANGYUE = 1 << 8;	//上(个)?月
+	private static final int BENYUE = 1 << 9;		//(本|这个)月
+	private static final int XIAYUE = 1 << 10;		//下(个)?月
+	private static final int DAQIANTIAN = 1 << 11;	//大前天
+	private static final int QIANTIAN = 1 << 12;	//(?<!大)前天
+	private static final int ZUO = 1 << 13;		//昨
+	private static final int JIN = 1 << 14;		//今(?!年)
+	private static final int MING = 1 << 15;		//明(?!年)
+	private static final int HOUTIAN = 1 << 16;	//(?<!大)后天
+	private static final int DAHOUTIAN = 1 << 17;	//大后天
+
+	/*
+	 * 数值字段的正则表达式必须包含的字符，同样由 keywords() 得到，
+	 * 表达式中没有这些字符时不用匹配相应的正则表达式
+	 */
+	private static final int C_DIGIT = 1 << 18;	//[0-9]
+	private static final int C_YEAR = 1 << 19;		//年
+	private static final int C_MONTH = 1 << 20;	//月
+	private static final int C_DAY = 1 << 21;		//日|号
+	private static final int C_HOUR = 1 << 22;		//点|时
+	private static final int C_MINUTE = 1 << 23;	//分|点|时
+	private static final int C_SECOND = 1 << 24;	//秒|分
+	private static final int C_COLON = 1 << 25;	//:
+	private static final int C_DASH = 1 << 26;		//-
+	private static final int C_SLASH = 1 << 27;	///
+	private static final int C_DOT = 1 << 28;		//\.
+	private static final int C_TIAN = 1 << 29;		//天
+	private static final int C_WEEK = 1 << 30;		//周|星期
+
+	private String scanned = null;
+	private int scannedKeys;
+
 	/**
 	 * 时间表达式单元规范化的内部类
 	 *
@@ -86,6 +160,138 @@ public class TimeUnit
         return time;
     }
     
+	/**
+	 * 扫描一遍时间表达式，得到其中出现的关键字和数值字段需要的字符
+	 * @return 关键字和字符的位集合
+	 */
+	private int keywords(){
+		String exp = Time_Expression;
+		if(exp == scanned)
+			return scannedKeys;
+		int keys = 0;
+		int len = exp.length();
+		for(int i = 0; i < len; i++){
+			char c = exp.charAt(i);
+			char prev = i > 0 ? exp.charAt(i - 1) : 0;
+			char next = i + 1 < len ? exp.charAt(i + 1) : 0;
+			char next2 = i + 2 < len ? exp.charAt(i + 2) : 0;
+			if(c >= '0' && c <= '9'){
+				keys |= C_DIGIT;
+				continue;
+			}
+			switch(c){
+			case '年':
+				keys |= C_YEAR;
+				break;
+			case '月':
+				keys |= C_MONTH;
+				break;
+			case '日':
+			case '号':
+				keys |= C_DAY;
+				break;
+			case '点':
+			case '时':
+				keys |= C_HOUR | C_MINUTE;
+				break;
+			case '分':
+				keys |= C_MINUTE | C_SECOND;
+				break;
+			case '秒':
+				keys |= C_SECOND;
+				break;
+			case ':':
+				keys |= C_COLON;
+				break;
+			case '-':
+				keys |= C_DASH;
+				break;
+			case '/':
+				keys |= C_SLASH;
+				break;
+			case '.':
+				keys |= C_DOT;
+				break;
+			case '天':
+				keys |= C_TIAN;
+				break;
+			case '周':
+			case '期':
+				keys |= C_WEEK;
+				break;
+			case '中':
+				if(next == '午') keys |= NOON;
+				break;
+			case '午':
+				if(next == '间') keys |= NOON;
+				else if(next == '后') keys |= AFTERNOON;
+				break;
+			case 'p':
+				if(next == 'm') keys |= AFTERNOON;
+				break;
+			case 'P':
+				if(next == 'M') keys |= AFTERNOON;
+				break;
+			case '晚':
+				keys |= NIGHT;
+				break;
+			case '前':
+				if(next == '年') keys |= QIANNIAN;
+				else if(next == '天' && prev != '大') keys |= QIANTIAN;
+				break;
+			case '去':
+				if(next == '年') keys |= QUNIAN;
+				break;
+			case '今':
+				keys |= next == '年' ? JINNIAN : JIN;
+				break;
+			case '明':
+				keys |= next == '年' ? MINGNIAN : MING;
+				break;
+			case '后':
+				if(next == '年') keys |= HOUNIAN;
+				else if(next == '天' && prev != '大') keys |= HOUTIAN;
+				break;
+			case '上':
+				if(next == '月' || (next == '个' && next2 == '月')) keys |= SHANGYUE;
+				break;
+			case '下':
+				if(next == '午') keys |= AFTERNOON;
+				else if(next == '月' || (next == '个' && next2 == '月')) keys |= XIAYUE;
+				break;
+			case '本':
+				if(next == '月') keys |= BENYUE;
+				break;
+			case '这':
+				if(next == '个' && next2 == '月') keys |= BENYUE;
+				break;
+			case '大':
+				if(next == '前' && next2 == '天') keys |= DAQIANTIAN;
+				else if(next == '后' && next2 == '天') keys |= DAHOUTIAN;
+				break;
+			case '昨':
+				keys |= ZUO;
+				break;
+			}
+		}
+		scanned = exp;
+		scannedKeys = keys;
+		return keys;
+	}
+
+	/**
+	 * 表达式中有正则表达式必须包含的字符时才匹配
+	 * @param p 正则表达式
+	 * @param need 必须包含的字符，见 keywords()
+	 * @return 找到时返回匹配结果，否则返回null
+	 */
+	private Matcher find(Pattern p, int need){
+		if((keywords() & need) != need)
+			return null;
+		Matcher match = p.matcher(Time_Expression);
+		return match.find() ? match : null;
+	}
+
 	/**
      *年-规范化方法
      *
@@ -94,10 +300,8 @@ public class TimeUnit
      */
 	public void norm_setyear()
 	{
-		String rule="[0-9]{2}(?=年)";
-		Pattern pattern=Pattern.compile(rule);
-		Matcher match=pattern.matcher(Time_Expression);
-		if(match.find())
+		Matcher match=find(YEAR2, C_DIGIT | C_YEAR);
+		if(match != null)
 		{
 			_tp.tunit[0]=Integer.parseInt(match.group());
 			if(_tp.tunit[0] >= 0 && _tp.tunit[0] < 100){
@@ -112,11 +316,8 @@ public class TimeUnit
 		 * 不仅局限于支持1XXX年和2XXX年的识别，可识别三位数和四位数表示的年份
 		 * modified by 曹零
 		 */
-		rule="[0-9]?[0-9]{3}(?=年)";
-		
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		match=find(YEAR4, C_DIGIT | C_YEAR);
+		if(match != null)
 		{
 			_tp.tunit[0]=Integer.parseInt(match.group());
 		}
@@ -129,10 +330,8 @@ public class TimeUnit
      */
 	public void norm_setmonth()
 	{
-		String rule="((10)|(11)|(12)|([1-9]))(?=月)";
-		Pattern pattern=Pattern.compile(rule);
-		Matcher match=pattern.matcher(Time_Expression);
-		if(match.find())
+		Matcher match=find(MONTH, C_DIGIT | C_MONTH);
+		if(match != null)
 		{
 			_tp.tunit[1]=Integer.parseInt(match.group());
 		}	
@@ -145,10 +344,8 @@ public class TimeUnit
      */
 	public void norm_setday()
 	{
-		String rule="((?<!\\d))([0-3][0-9]|[1-9])(?=(日|号))";
-		Pattern pattern=Pattern.compile(rule);
-		Matcher match=pattern.matcher(Time_Expression);
-		if(match.find())
+		Matcher match=find(DAY, C_DIGIT | C_DAY);
+		if(match != null)
 		{
 			_tp.tunit[2]=Integer.parseInt(match.group());
 		}	
@@ -165,14 +362,12 @@ public class TimeUnit
 		 * 清除只能识别11-99时的bug
 		 * modified by 曹零
 		 */
-		String rule="(?<!(周|星期))([0-2]?[0-9])(?=(点|时))";
-		
-		Pattern pattern=Pattern.compile(rule);
-		Matcher match=pattern.matcher(Time_Expression);
-		if(match.find())
+		Matcher match=find(HOUR, C_DIGIT | C_HOUR);
+		if(match != null)
 		{
 			_tp.tunit[3]=Integer.parseInt(match.group());
 		}	
+		int keys = keywords();
 		/*
 		 * 对关键字：中午,午间,下午,午后,晚上,傍晚,晚间,晚,pm,PM的正确时间计算
 		 * 规约：
@@ -183,26 +378,17 @@ public class TimeUnit
 		 * 
 		 * add by 曹零
 		 */
-		rule = "(中午)|(午间)";
-		pattern = Pattern.compile(rule);
-		match = pattern.matcher(Time_Expression);
-		if(match.find()){
+		if((keys & NOON) != 0){
 			if(_tp.tunit[3] >= 0 && _tp.tunit[3] <= 10)
 				_tp.tunit[3] += 12;
 		}
 		
-		rule = "(下午)|(午后)|(pm)|(PM)";
-		pattern = Pattern.compile(rule);
-		match = pattern.matcher(Time_Expression);
-		if(match.find()){
+		if((keys & AFTERNOON) != 0){
 			if(_tp.tunit[3] >= 0 && _tp.tunit[3] <= 11)
 				_tp.tunit[3] += 12;
 		}
 		
-		rule = "晚";
-		pattern = Pattern.compile(rule);
-		match = pattern.matcher(Time_Expression);
-		if(match.find()){
+		if((keys & NIGHT) != 0){
 			if(_tp.tunit[3] >= 1 && _tp.tunit[3] <= 11)
 				_tp.tunit[3] += 12;
 			else if(_tp.tunit[3] == 12)
@@ -222,11 +408,8 @@ public class TimeUnit
 		 * 如17点15
 		 * modified by 曹零
 		 */
-		String rule="([0-5]?[0-9](?=分(?!钟)))|((?<=((?<!小)[点时]))[0-5]?[0-9](?!刻))";
-		
-		Pattern pattern=Pattern.compile(rule);
-		Matcher match=pattern.matcher(Time_Expression);
-		if(match.find())
+		Matcher match=find(MINUTE, C_DIGIT | C_MINUTE);
+		if(match != null)
 		{
 			if(match.group().equals("")){
 				
@@ -239,24 +422,18 @@ public class TimeUnit
 		 * 
 		 * add by 曹零
 		 */
-		rule = "(?<=[点时])[1一]刻(?!钟)";
-		pattern = Pattern.compile(rule);
-		match = pattern.matcher(Time_Expression);
-		if(match.find()){
+		match=find(QUARTER1, C_HOUR);
+		if(match != null){
 			_tp.tunit[4] = 15;
 		}
 		
-		rule = "(?<=[点时])半";
-		pattern = Pattern.compile(rule);
-		match = pattern.matcher(Time_Expression);
-		if(match.find()){
+		match=find(HALF, C_HOUR);
+		if(match != null){
 			_tp.tunit[4] = 30;
 		}
 		
-		rule = "(?<=[点时])[3三]刻(?!钟)";
-		pattern = Pattern.compile(rule);
-		match = pattern.matcher(Time_Expression);
-		if(match.find()){
+		match=find(QUARTER3, C_HOUR);
+		if(match != null){
 			_tp.tunit[4] = 45;
 		}
 		
@@ -274,11 +451,8 @@ public class TimeUnit
 		 * 如17点15分32
 		 * modified by 曹零
 		 */
-		String rule="([0-5]?[0-9](?=秒))|((?<=分)[0-5]?[0-9])";
-		
-		Pattern pattern=Pattern.compile(rule);
-		Matcher match=pattern.matcher(Time_Expression);
-		if(match.find())
+		Matcher match=find(SECOND, C_DIGIT | C_SECOND);
+		if(match != null)
 		{
 			_tp.tunit[5]=Integer.parseInt(match.group());
 		}	
@@ -291,8 +465,6 @@ public class TimeUnit
      */
 	public void norm_setTotal()
 	{
-		String rule;
-		Pattern pattern;
 		Matcher match;
 		String[] tmp_parser;
 		String tmp_target;
@@ -301,10 +473,8 @@ public class TimeUnit
 		 * 修改了函数中所有的匹配规则使之更为严格
 		 * modified by 曹零
 		 */
-		rule="(?<!(周|星期))([0-2]?[0-9]):[0-5]?[0-9]:[0-5]?[0-9]";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		match=find(HMS, C_DIGIT | C_COLON);
+		if(match != null)
 		{
 			tmp_parser=new String[3];
 			tmp_target=match.group();
@@ -318,10 +488,8 @@ public class TimeUnit
 		 * add by 曹零
 		 */
 		else{
-			rule="(?<!(周|星期))([0-2]?[0-9]):[0-5]?[0-9]";
-			pattern=Pattern.compile(rule);
-			match=pattern.matcher(Time_Expression);
-			if(match.find())
+			match=find(HM, C_DIGIT | C_COLON);
+			if(match != null)
 			{
 				tmp_parser=new String[2];
 				tmp_target=match.group();
@@ -330,32 +498,24 @@ public class TimeUnit
 				_tp.tunit[4]=Integer.parseInt(tmp_parser[1]);
 			}
 		}
+		int keys = keywords();
 		/*
 		 * 增加了:固定形式时间表达式的
 		 * 中午,午间,下午,午后,晚上,傍晚,晚间,晚,pm,PM
 		 * 的正确时间计算，规约同上
 		 * add by 曹零
 		 */
-		rule = "(中午)|(午间)";
-		pattern = Pattern.compile(rule);
-		match = pattern.matcher(Time_Expression);
-		if(match.find()){
+		if((keys & NOON) != 0){
 			if(_tp.tunit[3] >= 0 && _tp.tunit[3] <= 10)
 				_tp.tunit[3] += 12;
 		}
 		
-		rule = "(下午)|(午后)|(pm)|(PM)";
-		pattern = Pattern.compile(rule);
-		match = pattern.matcher(Time_Expression);
-		if(match.find()){
+		if((keys & AFTERNOON) != 0){
 			if(_tp.tunit[3] >= 0 && _tp.tunit[3] <= 11)
 				_tp.tunit[3] += 12;
 		}
 		
-		rule = "晚";
-		pattern = Pattern.compile(rule);
-		match = pattern.matcher(Time_Expression);
-		if(match.find()){
+		if((keys & NIGHT) != 0){
 			if(_tp.tunit[3] >= 1 && _tp.tunit[3] <= 11)
 				_tp.tunit[3] += 12;
 			else if(_tp.tunit[3] == 12)
@@ -363,10 +523,8 @@ public class TimeUnit
 		}
 		
 		
-		rule="[0-9]?[0-9]?[0-9]{2}-((10)|(11)|(12)|([1-9]))-((?<!\\d))([0-3][0-9]|[1-9])";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		match=find(YMD_DASH, C_DIGIT | C_DASH);
+		if(match != null)
 		{
 			tmp_parser=new String[3];
 			tmp_target=match.group();
@@ -376,10 +534,8 @@ public class TimeUnit
 			_tp.tunit[2]=Integer.parseInt(tmp_parser[2]);
 		}
 		
-		rule="((10)|(11)|(12)|([1-9]))/((?<!\\d))([0-3][0-9]|[1-9])/[0-9]?[0-9]?[0-9]{2}";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		match=find(MDY_SLASH, C_DIGIT | C_SLASH);
+		if(match != null)
 		{
 			tmp_parser=new String[3];
 			tmp_target=match.group();
@@ -393,10 +549,8 @@ public class TimeUnit
 		 * 增加了:固定形式时间表达式 年.月.日 的正确识别
 		 * add by 曹零
 		 */
-		rule="[0-9]?[0-9]?[0-9]{2}\\.((10)|(11)|(12)|([1-9]))\\.((?<!\\d))([0-3][0-9]|[1-9])";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		match=find(YMD_DOT, C_DIGIT | C_DOT);
+		if(match != null)
 		{
 			tmp_parser=new String[3];
 			tmp_target=match.group();
@@ -427,60 +581,48 @@ public class TimeUnit
 		boolean[] flag = {false,false,false};//观察时间表达式是否因当前相关时间表达式而改变时间
 		
 
-		String rule="\\d+(?=天[以之]?前)";
-		Pattern pattern=Pattern.compile(rule);
-		Matcher match=pattern.matcher(Time_Expression);
-		if(match.find())
+		Matcher match=find(DAYS_BEFORE, C_DIGIT | C_TIAN);
+		if(match != null)
 		{
 			flag[2] = true;
 			int day = Integer.parseInt(match.group());
 			calendar.add(Calendar.DATE, -day);
 		}
 		
-		rule="\\d+(?=天[以之]?后)";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		match=find(DAYS_AFTER, C_DIGIT | C_TIAN);
+		if(match != null)
 		{
 			flag[2] = true;
 			int day = Integer.parseInt(match.group());
 			calendar.add(Calendar.DATE, day);
 		}
 		
-		rule="\\d+(?=(个)?月[以之]?前)";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		match=find(MONTHS_BEFORE, C_DIGIT | C_MONTH);
+		if(match != null)
 		{
 			flag[1] = true;
 			int month = Integer.parseInt(match.group());
 			calendar.add(Calendar.MONTH, -month);
 		}
 		
-		rule="\\d+(?=(个)?月[以之]?后)";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		match=find(MONTHS_AFTER, C_DIGIT | C_MONTH);
+		if(match != null)
 		{
 			flag[1] = true;
 			int month = Integer.parseInt(match.group());
 			calendar.add(Calendar.MONTH, month);
 		}
 		
-		rule="\\d+(?=年[以之]?前)";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		match=find(YEARS_BEFORE, C_DIGIT | C_YEAR);
+		if(match != null)
 		{
 			flag[0] = true;
 			int year = Integer.parseInt(match.group());
 			calendar.add(Calendar.YEAR, -year);
 		}
 		
-		rule="\\d+(?=年[以之]?后)";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		match=find(YEARS_AFTER, C_DIGIT | C_YEAR);
+		if(match != null)
 		{
 			flag[0] = true;
 			int year = Integer.parseInt(match.group());
@@ -517,146 +659,100 @@ public class TimeUnit
 		
 		boolean[] flag = {false,false,false};//观察时间表达式是否因当前相关时间表达式而改变时间
 		
-		String rule="前年";
-		Pattern pattern=Pattern.compile(rule);
-		Matcher match=pattern.matcher(Time_Expression);
-		if(match.find())
+		int keys = keywords();
+		if((keys & QIANNIAN) != 0)
 		{
 			flag[0] = true;
 			calendar.add(Calendar.YEAR, -2);
 		}
 		
-		rule="去年";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		if((keys & QUNIAN) != 0)
 		{
 			flag[0] = true;
 			calendar.add(Calendar.YEAR, -1);
 		}
 		
-		rule="今年";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		if((keys & JINNIAN) != 0)
 		{
 			flag[0] = true;
 			calendar.add(Calendar.YEAR, 0);
 		}
 		
-		rule="明年";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		if((keys & MINGNIAN) != 0)
 		{
 			flag[0] = true;
 			calendar.add(Calendar.YEAR, 1);
 		}	
 		
-		rule="后年";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		if((keys & HOUNIAN) != 0)
 		{
 			flag[0] = true;
 			calendar.add(Calendar.YEAR, 2);
 		}	
 		
-		rule="上(个)?月";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		if((keys & SHANGYUE) != 0)
 		{
 			flag[1] = true;
 			calendar.add(Calendar.MONTH, -1);
 			
 		}
 		
-		rule="(本|这个)月";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		if((keys & BENYUE) != 0)
 		{
 			flag[1] = true;
 			calendar.add(Calendar.MONTH, 0);
 		}
 		
-		rule="下(个)?月";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		if((keys & XIAYUE) != 0)
 		{
 			flag[1] = true;
 			calendar.add(Calendar.MONTH, 1);
 		}
 		
-		rule="大前天";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		if((keys & DAQIANTIAN) != 0)
 		{
 			flag[2] = true;
 			calendar.add(Calendar.DATE, -3);
 		}
 		
-		rule="(?<!大)前天";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		if((keys & QIANTIAN) != 0)
 		{
 			flag[2] = true;
 			calendar.add(Calendar.DATE, -2);
 		}
 		
-		rule="昨";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		if((keys & ZUO) != 0)
 		{
 			flag[2] = true;
 			calendar.add(Calendar.DATE, -1);
 		}
 		
-		rule="今(?!年)";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		if((keys & JIN) != 0)
 		{
 			flag[2] = true;
 			calendar.add(Calendar.DATE, 0);
 		}
 		
-		rule="明(?!年)";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		if((keys & MING) != 0)
 		{
 			flag[2] = true;
 			calendar.add(Calendar.DATE, 1);
 		}
 		
-		rule="(?<!大)后天";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		if((keys & HOUTIAN) != 0)
 		{
 			flag[2] = true;
 			calendar.add(Calendar.DATE, 2);
 		}
 		
-		rule="大后天";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		if((keys & DAHOUTIAN) != 0)
 		{
 			flag[2] = true;
 			calendar.add(Calendar.DATE, 3);
 		}
 		
-		rule="(?<=(上上(周|星期)))[1-7]";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		Matcher match=find(WEEK_LAST2, C_DIGIT | C_WEEK);
+		if(match != null)
 		{
 			flag[2] = true;
 			int week = Integer.parseInt(match.group());
@@ -668,10 +764,8 @@ public class TimeUnit
 			calendar.set(Calendar.DAY_OF_WEEK, week);
 		}
 		
-		rule="(?<=((?<!上)上(周|星期)))[1-7]";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		match=find(WEEK_LAST, C_DIGIT | C_WEEK);
+		if(match != null)
 		{
 			flag[2] = true;
 			int week = Integer.parseInt(match.group());
@@ -683,10 +777,8 @@ public class TimeUnit
 			calendar.set(Calendar.DAY_OF_WEEK, week);
 		}
 		
-		rule="(?<=((?<!下)下(周|星期)))[1-7]";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		match=find(WEEK_NEXT, C_DIGIT | C_WEEK);
+		if(match != null)
 		{
 			flag[2] = true;
 			int week = Integer.parseInt(match.group());
@@ -698,10 +790,8 @@ public class TimeUnit
 			calendar.set(Calendar.DAY_OF_WEEK, week);
 		}
 		
-		rule="(?<=(下下(周|星期)))[1-7]";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		match=find(WEEK_NEXT2, C_DIGIT | C_WEEK);
+		if(match != null)
 		{
 			flag[2] = true;
 			int week = Integer.parseInt(match.group());
@@ -713,10 +803,8 @@ public class TimeUnit
 			calendar.set(Calendar.DAY_OF_WEEK, week);
 		}
 		
-		rule="(?<=((?<!(上|下))(周|星期)))[1-7]";
-		pattern=Pattern.compile(rule);
-		match=pattern.matcher(Time_Expression);
-		if(match.find())
+		match=find(WEEK_THIS, C_DIGIT | C_WEEK);
+		if(match != null)
 		{
 			flag[2] = true;
 			int week = Integer.parseInt(match.group());
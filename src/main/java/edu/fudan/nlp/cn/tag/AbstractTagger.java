@@ -1,17 +1,28 @@
 package edu.fudan.nlp.cn.tag;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
-import edu.fudan.ml.classifier.LabelParser.Type;
-import edu.fudan.ml.classifier.Predict;
-import edu.fudan.ml.classifier.TPredict;
 import edu.fudan.ml.classifier.linear.Linear;
+import edu.fudan.ml.classifier.linear.MappedModel;
+import edu.fudan.ml.classifier.linear.inf.Inferencer;
+import edu.fudan.ml.classifier.struct.inf.LinearViterbi;
 import edu.fudan.ml.types.Instance;
 import edu.fudan.ml.types.alphabet.AlphabetFactory;
 import edu.fudan.ml.types.alphabet.IFeatureAlphabet;
 import edu.fudan.ml.types.alphabet.LabelAlphabet;
+import edu.fudan.nlp.cn.Sentenizer;
 import edu.fudan.nlp.pipe.Pipe;
 import edu.fudan.nlp.pipe.seq.Sequence2FeatureSequence;
 import edu.fudan.nlp.pipe.seq.templet.TempletGroup;
@@ -34,6 +45,18 @@ public abstract class AbstractTagger {
 	 * 词之间间隔标记，缺省为空格。
 	 */
 	protected String delim = " ";
+	/**
+	 * 批量标注的线程数，缺省为处理器个数
+	 */
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+	/**
+	 * 批量标注的线程池，第一次批量标注时创建
+	 */
+	private ExecutorService pool;
+	/**
+	 * 当前的推理快照
+	 */
+	private volatile InferenceSnapshot snapshot;
 
 	/**
 	 * 抽象标注器构造函数
@@ -50,6 +73,10 @@ public abstract class AbstractTagger {
 		IFeatureAlphabet features = factory.DefaultFeatureAlphabet();
 		featurePipe = new Sequence2FeatureSequence(templets, features,
 				labels);
+		features.setStopIncrement(true);
+		Inferencer inf = getClassifier().getInferencer();
+		if (inf instanceof LinearViterbi)
+			((LinearViterbi) inf).buildConstTransition(features);
 	}
 
 	public AbstractTagger() {
@@ -62,12 +89,208 @@ public abstract class AbstractTagger {
 	 */
 	public abstract Object tag(String src);
 
+	/**
+	 * 用当前快照处理并标注样本
+	 * @param inst 样本实例
+	 * @return 标签序列，处理出错时打印异常并返回空数组
+	 */
 	protected String[] _tag(Instance  inst)	{
-		doProcess(inst);
-		TPredict pred = getClassifier().classify(inst,Type.SEQ);
-		if (pred == null)
+		try {
+			return getSnapshot().tag(inst);
+		} catch (Exception e) {
+			e.printStackTrace();
 			return new String[0];
-		return (String[]) pred.getLabel(0);
+		}
+	}
+
+	/**
+	 * 得到当前的推理快照。快照不可修改，可以被多个线程共享；
+	 * 一次标注应只使用同一个快照完成处理和解码。
+	 * 通过 {@link #getClassifier()} 替换了解码器，或替换了预处理、特征抽取时，自动生成新快照。
+	 * @return 推理快照
+	 */
+	public InferenceSnapshot getSnapshot() {
+		InferenceSnapshot s = snapshot;
+		if (s == null || s.getInferencer() != getClassifier().getInferencer()
+				|| s.getFeaturePipe() != featurePipe || s.getPrePipe() != prePipe)
+			s = publish();
+		return s;
+	}
+
+	/**
+	 * 根据当前的预处理、特征抽取、解码器和标签集生成新的快照并替换旧快照。
+	 * 修改这些对象后必须调用。
+	 * @return 新快照
+	 */
+	protected synchronized InferenceSnapshot publish() {
+		InferenceSnapshot s = new InferenceSnapshot(prePipe, featurePipe,
+				getClassifier().getInferencer(),
+				factory.DefaultFeatureAlphabet(), labels);
+		snapshot = s;
+		return s;
+	}
+
+	/**
+	 * 标注单个句子，批量标注时在工作线程中调用
+	 * @param sent 已断句的句子
+	 * @return 标注结果
+	 */
+	protected String tagSentence(String sent) {
+		Object res = tag(sent);
+		return res == null ? null : res.toString();
+	}
+
+	/**
+	 * 标注已切分好的序列，批量标注时在工作线程中调用
+	 * @param seq 序列，每个元素为一个标注单元
+	 * @return 每个单元的标签
+	 */
+	protected String[] tagSequence(String[] seq) {
+		return _tag(new Instance(seq));
+	}
+
+	/**
+	 * 批量标注。每个输入先用Sentenizer断句，所有句子按长度分组后在线程池中并行解码，
+	 * 再将每个输入的各句结果用间隔符连接，按输入顺序返回。
+	 * @param srcs 输入字符串
+	 * @return 标注结果，与输入一一对应
+	 */
+	public String[] tagBatch(List<String> srcs) {
+		String[] res = new String[srcs.size()];
+		List<String> sents = new ArrayList<String>();
+		int[] start = new int[srcs.size() + 1];
+		for (int i = 0; i < srcs.size(); i++) {
+			start[i] = sents.size();
+			String src = srcs.get(i);
+			if (src == null || src.length() == 0)
+				continue;
+			for (String s : Sentenizer.split(src))
+				sents.add(s);
+		}
+		start[srcs.size()] = sents.size();
+
+		final String[] input = sents.toArray(new String[sents.size()]);
+		int[] lens = new int[input.length];
+		for (int i = 0; i < input.length; i++)
+			lens[i] = input[i].length();
+		final String[] out = new String[input.length];
+		runBatch(lens, new BatchJob() {
+			public void run(int i) {
+				out[i] = tagSentence(input[i]);
+			}
+		});
+
+		for (int i = 0; i < srcs.size(); i++) {
+			if (start[i] == start[i + 1]) {
+				res[i] = srcs.get(i);
+				continue;
+			}
+			StringBuilder sb = new StringBuilder();
+			for (int j = start[i]; j < start[i + 1]; j++) {
+				if (out[j] == null)
+					continue;
+				if (sb.length() > 0)
+					sb.append(delim);
+				sb.append(out[j]);
+			}
+			res[i] = sb.toString();
+		}
+		return res;
+	}
+
+	/**
+	 * 批量标注已切分好的序列（如分好词的句子），按长度分组后在线程池中并行解码。
+	 * @param seqs 序列数组
+	 * @return 每个序列的标签，与输入一一对应
+	 */
+	public String[][] tagBatch(final String[][] seqs) {
+		int[] lens = new int[seqs.length];
+		for (int i = 0; i < seqs.length; i++)
+			lens[i] = seqs[i] == null ? 0 : seqs[i].length;
+		final String[][] out = new String[seqs.length][];
+		runBatch(lens, new BatchJob() {
+			public void run(int i) {
+				if (seqs[i] != null && seqs[i].length > 0)
+					out[i] = tagSequence(seqs[i]);
+			}
+		});
+		return out;
+	}
+
+	/**
+	 * 设置批量标注的线程数
+	 * @param n 线程数
+	 */
+	public synchronized void setNumThreads(int n) {
+		if (n < 1)
+			throw new IllegalArgumentException("线程数必须大于0: " + n);
+		numThreads = n;
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	private interface BatchJob {
+		void run(int i);
+	}
+
+	/**
+	 * 将任务按长度排序后切成若干组，长度相近的句子在同一线程中连续处理，
+	 * 使每个线程复用的解码缓存大小稳定
+	 * @param lens 每个任务的长度
+	 * @param job 任务
+	 */
+	private void runBatch(int[] lens, final BatchJob job) {
+		int n = lens.length;
+		if (n == 0)
+			return;
+		final Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++)
+			order[i] = i;
+		final int[] l = lens;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return l[a] < l[b] ? -1 : (l[a] == l[b] ? 0 : 1);
+			}
+		});
+
+		ExecutorService pool = getPool();
+		int numChunks = Math.min(n, numThreads * 4);
+		List<Future<?>> fs = new ArrayList<Future<?>>(numChunks);
+		for (int c = 0; c < numChunks; c++) {
+			final int from = (int) ((long) n * c / numChunks);
+			final int to = (int) ((long) n * (c + 1) / numChunks);
+			fs.add(pool.submit(new Callable<Object>() {
+				public Object call() {
+					for (int i = from; i < to; i++)
+						job.run(order[i]);
+					return null;
+				}
+			}));
+		}
+		try {
+			for (Future<?> f : fs)
+				f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Batch tagging interrupted.", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Batch tagging occur exception.", e.getCause());
+		}
+	}
+
+	private synchronized ExecutorService getPool() {
+		if (pool == null) {
+			pool = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "tagger-batch");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return pool;
 	}
 
 	/**
@@ -131,10 +354,7 @@ public abstract class AbstractTagger {
 	 */
 	public void doProcess(Instance carrier)	{
 		try {
-			if(prePipe!=null)
-				prePipe.addThruPipe(carrier);
-			carrier.setSource(carrier.getData());
-			featurePipe.addThruPipe(carrier);
+			getSnapshot().process(carrier);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -149,7 +369,25 @@ public abstract class AbstractTagger {
 		out.close();
 	}
 
+	/**
+	 * 读入模型，支持gzip压缩的序列化格式和内存映射格式（见 {@link MappedModel}）
+	 * @param modelfile 模型文件
+	 */
 	public void loadFrom(String modelfile) {
+		if (MappedModel.isMapped(modelfile)) {
+			try {
+				MappedModel model = MappedModel.loadFrom(modelfile);
+				templets = (TempletGroup) model.getHeader();
+				setClassifier(model.getClassifier());
+			} catch (IOException e) {
+				throw new RuntimeException("Load mode file[" + modelfile +
+						"] occur IO exception.", e);
+			} catch (ClassNotFoundException e) {
+				throw new RuntimeException("Load mode file[" + modelfile +
+						"] occur ClassNotFoundException.", e);
+			}
+			return;
+		}
 		ObjectInputStream in = null;
 		InputStream is = null;
 		try {
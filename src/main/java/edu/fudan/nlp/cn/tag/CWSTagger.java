@@ -2,6 +2,7 @@ package edu.fudan.nlp.cn.tag;
 
 import java.io.FileOutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 
 import org.apache.commons.cli.BasicParser;
@@ -13,12 +14,14 @@ import edu.fudan.ml.classifier.struct.inf.ConstraintViterbi;
 import edu.fudan.ml.classifier.struct.inf.LinearViterbi;
 import edu.fudan.ml.types.Dictionary;
 import edu.fudan.ml.types.Instance;
+import edu.fudan.nlp.cn.Chars;
 import edu.fudan.nlp.cn.Sentenizer;
 import edu.fudan.nlp.cn.tag.format.FormatCWS;
 import edu.fudan.nlp.pipe.Pipe;
 import edu.fudan.nlp.pipe.SeriesPipes;
 import edu.fudan.nlp.pipe.seq.DictLabel;
 import edu.fudan.nlp.pipe.seq.String2Sequence;
+import edu.fudan.nlp.pipe.seq.TextSequence;
 
 import edu.fudan.util.MyCollection;
 import gnu.trove.set.hash.THashSet;
@@ -42,9 +45,10 @@ public class CWSTagger extends AbstractTagger {
 	 * 是否对英文单词进行预处理，将连续的英文字母看成一个单词
 	 * @param isEnFilter  是否对英文单词进行预处理
 	 */
-	public void setEnFilter(boolean isEnFilter){
-		isEnFilter = isEnFilter;
+	public synchronized void setEnFilter(boolean isEnFilter){
+		this.isEnFilter = isEnFilter;
 		prePipe = new String2Sequence(isEnFilter);
+		publish();
 	}
 
 	/**
@@ -83,15 +87,17 @@ public class CWSTagger extends AbstractTagger {
 	public CWSTagger(String str, Dictionary dict) {
 		this(str);
 		initDict(dict);
+		publish();
 	}
 
 	/**
 	 * 设置词典
 	 * @param dict 词典
 	 */
-	public void setDictionary(Dictionary dict) {
-		removeDictionary();
+	public synchronized void setDictionary(Dictionary dict) {
+		clearDict();
 		initDict(dict);
+		publish();
 	}
 	/**
 	 * 设置词典
@@ -108,10 +114,24 @@ public class CWSTagger extends AbstractTagger {
 
 	}
 
+	/**
+	 * 当前使用的词典，词典的修改对标注立即可见，不需要重新设置
+	 * @return 词典，没有时返回null
+	 */
+	public Dictionary getDictionary() {
+		DictLabel p = dictPipe;
+		return p == null ? null : p.getDict();
+	}
+
 	/**
 	 * 移除词典
 	 */
-	public void removeDictionary()	{
+	public synchronized void removeDictionary()	{
+		clearDict();
+		publish();
+	}
+
+	private void clearDict() {
 		if(oldfeaturePipe != null){
 			featurePipe = oldfeaturePipe;
 		}
@@ -128,20 +148,51 @@ public class CWSTagger extends AbstractTagger {
 		if(src==null||src.length()==0)
 			return src;
 		String[] sents = Sentenizer.split(src);
-		String tag = "";
+		StringBuilder tag = new StringBuilder(src.length() * 2);
 		try {
 			for (int i = 0; i < sents.length; i++) {
 				Instance inst = new Instance(sents[i]);
 				String[] preds = _tag(inst);
 				String s = FormatCWS.toString(inst, preds,delim);
-				tag += s;
+				tag.append(s);
 				if (i < sents.length - 1)
-					tag += delim;
+					tag.append(delim);
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
-		return tag;
+		return tag.toString();
+	}
+
+	@Override
+	protected String tagSentence(String sent) {
+		Instance inst = new Instance(sent);
+		String[] preds = _tag(inst);
+		//出错的句子不输出
+		if (preds.length == 0)
+			return null;
+		return FormatCWS.toString(inst, preds, delim);
+	}
+
+	/**
+	 * 对已切分好的字（或连续英文、数字）序列标注BMES标签
+	 */
+	@Override
+	protected String[] tagSequence(String[] seq) {
+		String[][] data = new String[2][seq.length];
+		for (int i = 0; i < seq.length; i++) {
+			data[0][i] = seq[i];
+			data[1][i] = Chars.getStringType(seq[i]).toString();
+		}
+		Instance inst = new Instance(data);
+		InferenceSnapshot snapshot = getSnapshot();
+		try {
+			inst.setSource(data);
+			snapshot.getFeaturePipe().addThruPipe(inst);
+		} catch (Exception e) {
+			throw new RuntimeException("CWSTagger:tagSequence occur exception.", e);
+		}
+		return snapshot.getLabels().lookupString(snapshot.decode(inst));
 	}
 
 	/**
@@ -188,6 +239,45 @@ public class CWSTagger extends AbstractTagger {
 		return (String[]) words.toArray(new String[words.size()]);
 	}
 
+	/**
+	 * 分词，返回每个词在原字符串中的起止位置，不生成词的字符串，不进行断句。
+	 * 切分与 {@link #tag2Array(String)} 相同，空格不属于任何词。
+	 * 直接在原文字符上抽取特征，不为每个字生成字符串。
+	 * @param src 字符串
+	 * @return 长度为2n的数组，第i个词为 src.subSequence(spans[2i], spans[2i+1])
+	 */
+	public int[] segmentOffsets(CharSequence src) {
+		if(src==null||src.length()==0)
+			return new int[0];
+		if(src instanceof String)
+			src = CharBuffer.wrap(src);
+		InferenceSnapshot snapshot = getSnapshot();
+		Instance inst = new Instance(src);
+		int[] preds;
+		try {
+			snapshot.process(inst);
+			preds = snapshot.decode(inst);
+		} catch (Exception e) {
+			throw new RuntimeException("CWSTagger:segmentOffsets occur exception.", e);
+		}
+		return FormatCWS.toOffsets(inst, preds, snapshot.getLabels());
+	}
+
+	/**
+	 * 对char[]中的一段分词，不复制字符
+	 * @param buf 字符数组
+	 * @param offset 起始位置
+	 * @param length 长度
+	 * @return 长度为2n的数组，第i个词为 [offset+spans[2i], offset+spans[2i+1])
+	 * @see #segmentOffsets(CharSequence)
+	 */
+	public int[] segmentOffsets(char[] buf, int offset, int length) {
+		int[] spans = segmentOffsets(TextSequence.wrap(buf, offset, length));
+		for (int i = 0; i < spans.length; i++)
+			spans[i] += offset;
+		return spans;
+	}
+
 	public static void main(String[] args) throws Exception {
 		Options opt = new Options();
 
@@ -0,0 +1,94 @@
+package edu.fudan.nlp.cn.tag;
+
+import edu.fudan.ml.classifier.TPredict;
+import edu.fudan.ml.classifier.linear.inf.Inferencer;
+import edu.fudan.ml.types.Instance;
+import edu.fudan.ml.types.alphabet.IFeatureAlphabet;
+import edu.fudan.ml.types.alphabet.LabelAlphabet;
+import edu.fudan.nlp.pipe.Pipe;
+
+/**
+ * 标注器的推理快照。
+ * 包含一次标注所需的预处理、特征抽取、解码器和标签集，创建后不再修改，
+ * 多个线程可以不加锁地共享同一个快照。
+ * 创建时冻结特征词典，解码时不会再插入新特征。
+ * 标注器修改词典时生成新的快照并整体替换，正在使用旧快照的线程不受影响。
+ * @author xpqiu
+ * @see AbstractTagger#getSnapshot()
+ */
+public final class InferenceSnapshot {
+
+	private final Pipe prePipe;
+	private final Pipe featurePipe;
+	private final Inferencer inferencer;
+	private final LabelAlphabet labels;
+
+	/**
+	 * 构造函数
+	 * @param prePipe 预处理，可以为null
+	 * @param featurePipe 特征抽取
+	 * @param inferencer 解码器
+	 * @param features 特征词典，将被冻结
+	 * @param labels 输出标签集
+	 */
+	public InferenceSnapshot(Pipe prePipe, Pipe featurePipe,
+			Inferencer inferencer, IFeatureAlphabet features, LabelAlphabet labels) {
+		this.prePipe = prePipe;
+		this.featurePipe = featurePipe;
+		this.inferencer = inferencer;
+		this.labels = labels;
+		if (features != null)
+			features.setStopIncrement(true);
+	}
+
+	/**
+	 * 数据处理方法，将数据从字符串的形式转化成向量形式
+	 * @param carrier 样本实例
+	 * @throws Exception
+	 */
+	public void process(Instance carrier) throws Exception {
+		if(prePipe!=null)
+			prePipe.addThruPipe(carrier);
+		carrier.setSource(carrier.getData());
+		featurePipe.addThruPipe(carrier);
+	}
+
+	/**
+	 * 解码已处理的样本
+	 * @param carrier 样本实例
+	 * @return 标签索引序列，样本为空时返回空数组
+	 */
+	public int[] decode(Instance carrier) {
+		TPredict pred = inferencer.getBest(carrier);
+		if (pred == null || pred.getLabel(0) == null)
+			return new int[0];
+		return (int[]) pred.getLabel(0);
+	}
+
+	/**
+	 * 处理并解码样本
+	 * @param carrier 样本实例
+	 * @return 标签序列
+	 * @throws Exception
+	 */
+	public String[] tag(Instance carrier) throws Exception {
+		process(carrier);
+		return labels.lookupString(decode(carrier));
+	}
+
+	public Pipe getPrePipe() {
+		return prePipe;
+	}
+
+	public Pipe getFeaturePipe() {
+		return featurePipe;
+	}
+
+	public Inferencer getInferencer() {
+		return inferencer;
+	}
+
+	public LabelAlphabet getLabels() {
+		return labels;
+	}
+}
@@ -12,6 +12,7 @@ import edu.fudan.nlp.cn.Chars;
 import edu.fudan.nlp.pipe.Pipe;
 import edu.fudan.nlp.pipe.SeriesPipes;
 import edu.fudan.nlp.pipe.seq.DictPOSLabel;
+import edu.fudan.nlp.pipe.seq.TextSequence;
 
 /**
  * 词性标注器
@@ -97,8 +98,8 @@ public class POSTagger extends AbstractTagger {
 	 * 设置词典, 参数指定是否同时设置分词词典
 	 * @param dict 词典
 	 */
-	public void setDictionary(Dictionary dict, boolean isSetSegDict)   {
-		removeDictionary(isSetSegDict);
+	public synchronized void setDictionary(Dictionary dict, boolean isSetSegDict)   {
+		clearDict(isSetSegDict);
 		if(cws != null && isSetSegDict)
 			cws.setDictionary(dict);
 		dictPipe = null;
@@ -108,12 +109,27 @@ public class POSTagger extends AbstractTagger {
 		LinearViterbi dv = new ConstraintViterbi(
 				(LinearViterbi) getClassifier().getInferencer(),labels.size());
 		getClassifier().setInferencer(dv);
+		publish();
+	}
+
+	/**
+	 * 当前使用的词性词典，词典的修改对标注立即可见，不需要重新设置
+	 * @return 词典，没有时返回null
+	 */
+	public Dictionary getDictionary() {
+		DictPOSLabel p = dictPipe;
+		return p == null ? null : p.getDict();
 	}
 
 	/**
 	 * 移除词典, 参数指定是否同时移除分词词典
 	 */
-	public void removeDictionary(boolean isRemoveSegDict)	{
+	public synchronized void removeDictionary(boolean isRemoveSegDict)	{
+		clearDict(isRemoveSegDict);
+		publish();
+	}
+
+	private void clearDict(boolean isRemoveSegDict) {
 		if(cws != null && isRemoveSegDict)
 			cws.removeDictionary();
 
@@ -143,11 +159,7 @@ public class POSTagger extends AbstractTagger {
 		String[] words = cws.tag2Array(src);
 		if(words.length==0)
 			return null;
-		String[] target = null;
-		Instance inst = new Instance(words);
-		doProcess(inst);
-		int[]  pred = (int[]) getClassifier().classify(inst).getLabel(0);
-		target = labels.lookupString(pred);
+		String[] target = tagSeged(words);
 
 
 		String[][] tags = new String[2][];
@@ -184,10 +196,7 @@ public class POSTagger extends AbstractTagger {
 		if(words.length==0)
 			return src;
 
-		Instance inst = new Instance(words);
-		doProcess(inst);
-		int[] pred = (int[]) getClassifier().classify(inst).getLabel(0);
-		String[] target = labels.lookupString(pred);
+		String[] target = tagSeged(words);
 		String res = format(words, target);
 		return res;
 	}
@@ -213,6 +222,25 @@ public class POSTagger extends AbstractTagger {
 	}
 
 
+	/**
+	 * 标注原字符串中由起止位置给出的词的词性
+	 * @param src 字符串
+	 * @param spans 词的起止位置，如 {@link CWSTagger#segmentOffsets(CharSequence)} 的结果
+	 * @return 每个词的词性，由标注时使用的同一个模型版本得到
+	 */
+	public String[] tagOffsets(CharSequence src, int[] spans) {
+		if(spans==null || spans.length==0)
+			return new String[0];
+		InferenceSnapshot snapshot = getSnapshot();
+		try {
+			Instance inst = new Instance(new TextSequence(src, spans));
+			snapshot.process(inst);
+			return snapshot.getLabels().lookupString(snapshot.decode(inst));
+		} catch (Exception e) {
+			throw new RuntimeException("POSTagger:tagOffsets occur exception.",e);
+		}
+	}
+
 	/**
 	 * 处理分好词的句子
 	 * @param src
@@ -224,14 +252,17 @@ public class POSTagger extends AbstractTagger {
 		String[] target = null;
 		try {
 			Instance inst = new Instance(src);
-			doProcess(inst);
-			int[] pred = (int[]) getClassifier().classify(inst).getLabel(0);
-			target = labels.lookupString(pred);			
+			target = getSnapshot().tag(inst);
 		} catch (Exception e) {
 			throw new RuntimeException("POSTagger:tagSeged occur exception.",e);
 		}		
 		return target;
 	}
+	@Override
+	protected String[] tagSequence(String[] seq) {
+		return tagSeged(seq);
+	}
+
 	/**
 	 * 处理分好词的句子
 	 * @param src
@@ -326,10 +357,11 @@ public class POSTagger extends AbstractTagger {
 	 * 设定词性标注标记的类型
 	 * @param lang cn:中文 en:英文
 	 */
-	public void SetTagType(String lang){
+	public synchronized void SetTagType(String lang){
 		if(lang.equals("en"))
 			this.labels = factory.buildLabelAlphabet("label-en");
 		else if(lang.equals("cn"))
 			this.labels = factory.DefaultLabelAlphabet();
+		publish();
 	}
 }
@@ -46,9 +46,7 @@ public class POSTaggerX extends AbstractTagger {
 		try {
 			for (int i = 0; i < s.length; i++) {
 				Instance inst = new Instance(s[i]);
-				doProcess(inst);
-				int[] pred = (int[]) getClassifier().classify(inst).getLabel(0);
-				String[] target = labels.lookupString(pred);
+				String[] target = getSnapshot().tag(inst);
 				List[] res = Seq2ArrayWithTag.format(inst, target);
 				words.addAll(res[0]);
 				pos.addAll(res[1]);
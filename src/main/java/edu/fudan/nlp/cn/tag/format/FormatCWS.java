@@ -1,10 +1,14 @@
 package edu.fudan.nlp.cn.tag.format;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import edu.fudan.ml.types.Instance;
 import edu.fudan.ml.types.InstanceSet;
+import edu.fudan.ml.types.alphabet.LabelAlphabet;
+import edu.fudan.nlp.cn.Chars.StringType;
+import edu.fudan.nlp.pipe.seq.TextSequence;
 /**
  * 将序列标注结果转换成List输出
  * 将BMES标签转为成词的序列
@@ -46,6 +50,83 @@ public class FormatCWS {
 		}
 		return res;
 	}
+	/**
+	 * 将BMES标签转为词在原字符串中的起止位置，与 {@link #toList(Instance, String[])} 切分相同，
+	 * 但不生成词的字符串
+	 * @param inst 样本，source为原字符串切分成的单元序列
+	 * @param labels 标签索引
+	 * @param alphabet 标签集
+	 * @return 长度为2n的数组，第i个词为 [spans[2i], spans[2i+1])
+	 */
+	public static int[] toOffsets(Instance inst, int[] labels, LabelAlphabet alphabet) {
+		if (inst.getSource() instanceof TextSequence)
+			return toOffsets((TextSequence) inst.getSource(), labels, alphabet);
+		String[][] data = (String[][]) inst.getSource();
+		int len = data[0].length;
+		int idxE = alphabet.lookupIndex("E");
+		int idxS = alphabet.lookupIndex("S");
+		int[] spans = new int[2 * len];
+		int n = 0;
+		int pos = 0;
+		int start = -1;
+		for (int j = 0; j < len; j++) {
+			int end = pos + data[0][j].length();
+			if(data[1][j].equals("B")){//空格特殊处理
+				if(start >= 0){
+					spans[n++] = start;
+					spans[n++] = pos;
+					start = -1;
+				}
+				pos = end;
+				continue;
+			}
+			if (start < 0)
+				start = pos;
+			pos = end;
+			if (labels[j] == idxE || labels[j] == idxS) {
+				spans[n++] = start;
+				spans[n++] = pos;
+				start = -1;
+			}
+		}
+		if (start >= 0) {
+			spans[n++] = start;
+			spans[n++] = pos;
+		}
+		return Arrays.copyOf(spans, n);
+	}
+
+	private static int[] toOffsets(TextSequence seq, int[] labels, LabelAlphabet alphabet) {
+		int len = seq.length();
+		int idxE = alphabet.lookupIndex("E");
+		int idxS = alphabet.lookupIndex("S");
+		int[] spans = new int[2 * len];
+		int n = 0;
+		int start = -1;
+		for (int j = 0; j < len; j++) {
+			if(seq.type(j) == StringType.B){//空格特殊处理
+				if(start >= 0){
+					spans[n++] = start;
+					spans[n++] = seq.start(j);
+					start = -1;
+				}
+				continue;
+			}
+			if (start < 0)
+				start = seq.start(j);
+			if (labels[j] == idxE || labels[j] == idxS) {
+				spans[n++] = start;
+				spans[n++] = seq.end(j);
+				start = -1;
+			}
+		}
+		if (start >= 0) {
+			spans[n++] = start;
+			spans[n++] = seq.end(len - 1);
+		}
+		return Arrays.copyOf(spans, n);
+	}
+
 	/**
 	 * 将BMES标签转为#delim#隔开的字符串
 	 * @param instSet 样本集
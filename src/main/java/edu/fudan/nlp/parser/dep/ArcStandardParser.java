@@ -0,0 +1,205 @@
+package edu.fudan.nlp.parser.dep;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import edu.fudan.ml.classifier.Predict;
+import edu.fudan.ml.classifier.linear.Linear;
+import edu.fudan.ml.classifier.linear.inf.Inferencer;
+import edu.fudan.ml.classifier.linear.inf.LinearMax;
+import edu.fudan.ml.types.Instance;
+import edu.fudan.ml.types.alphabet.AlphabetFactory;
+import edu.fudan.ml.types.alphabet.IFeatureAlphabet;
+import edu.fudan.ml.types.alphabet.LabelAlphabet;
+import edu.fudan.nlp.corpus.fnlp.FNLPSent;
+import edu.fudan.nlp.parser.Sentence;
+import edu.fudan.nlp.parser.Target;
+
+/**
+ * 依赖句法分析器类，同时标注依赖关系类型
+ *
+ * 使用arc-standard转移算法（见 {@link ArcStandardState}），n个词的句子恰好预测2n次动作，
+ * 分析时间与句子长度成线性关系，而 {@link JointParser} 的Yamada算法最坏需要O(n²)次。
+ * 动作标签为"S"（SHIFT）、"L"+关系（LEFT）和"R"+关系（RIGHT），每一步执行当前可以执行的得分最高的动作。
+ * 模型由 {@link ArcStandardTrainer} 训练。
+ *
+ * @author xpqiu
+ */
+public class ArcStandardParser implements Serializable {
+
+	private static final long serialVersionUID = -2361879612450245571L;
+	private int ysize;
+	private AlphabetFactory factory;
+	private Linear models;
+	private IFeatureAlphabet fa;
+	private LabelAlphabet la;
+	/**
+	 * 每个动作标签对应的动作和关系
+	 */
+	private ArcStandardState.Action[] actions;
+	private String[] relations;
+
+	/**
+	 * 构造函数
+	 *
+	 * @param modelfile
+	 *            模型文件
+	 */
+	public ArcStandardParser(String modelfile) {
+		this(Linear.loadFrom(modelfile));
+	}
+
+	/**
+	 * 构造函数
+	 *
+	 * @param models
+	 *            训练好的模型
+	 */
+	public ArcStandardParser(Linear models) {
+		this.models = models;
+		factory = models.getAlphabetFactory();
+		fa = factory.DefaultFeatureAlphabet();
+		la = factory.DefaultLabelAlphabet();
+		ysize = la.size();
+		factory.setStopIncrement(true);
+		actions = new ArcStandardState.Action[ysize];
+		relations = new String[ysize];
+		for (int i = 0; i < ysize; i++) {
+			String label = la.lookupString(i);
+			actions[i] = toAction(label);
+			relations[i] = label.length() > 1 ? label.substring(1) : null;
+		}
+	}
+
+	/**
+	 * 动作标签对应的动作
+	 */
+	static ArcStandardState.Action toAction(String label) {
+		switch (label.charAt(0)) {
+		case 'L':
+			return ArcStandardState.Action.LEFT;
+		case 'R':
+			return ArcStandardState.Action.RIGHT;
+		default:
+			return ArcStandardState.Action.SHIFT;
+		}
+	}
+
+	/**
+	 * 动作对应的标签
+	 */
+	static String toLabel(ArcStandardState.Action action, String relation) {
+		if (relation == null)
+			relation = "";
+		switch (action) {
+		case LEFT:
+			return "L" + relation;
+		case RIGHT:
+			return "R" + relation;
+		default:
+			return "S";
+		}
+	}
+
+	private Predict<Target> _getBestParse(Sentence sent) {
+		float score = 0.0f;
+		ArcStandardState state = new ArcStandardState(sent);
+		Inferencer inf = models.getInferencer();
+		int[][] data = new int[1][];
+		float[][] scores = new float[1][ysize];
+		while (!state.isFinalState()) {
+			data[0] = JointParser.addFeature(fa, state.getFeatures(), ysize);
+			int best = -1;
+			if (inf instanceof LinearMax) {
+				// 直接计算所有动作的得分，取可以执行的最大者
+				((LinearMax) inf).getScores(data, scores);
+				for (int i = 0; i < ysize; i++) {
+					if (state.canDo(actions[i]) && (best == -1 || scores[0][i] > scores[0][best]))
+						best = i;
+				}
+				if (best != -1)
+					score += scores[0][best];
+			} else {
+				Predict<Integer> ret = models.classify(new Instance(data[0]), ysize);
+				for (int i = 0; i < ret.size() && ret.getLabel(i) != null; i++) {
+					if (state.canDo(actions[ret.getLabel(i)])) {
+						best = ret.getLabel(i);
+						score += ret.getScore(i);
+						break;
+					}
+				}
+			}
+			if (best != -1)
+				state.next(actions[best], relations[best]);
+			else if (state.canDo(ArcStandardState.Action.SHIFT)) //模型中没有可以执行的动作时保证分析能结束
+				state.next(ArcStandardState.Action.SHIFT, null);
+			else
+				state.next(ArcStandardState.Action.RIGHT, null);
+		}
+		Predict<Target> res = new Predict<Target>();
+		res.add(state.getTarget(), score);
+		return res;
+	}
+
+	public Target parse2R(Sentence sent) {
+		return _getBestParse(sent).getLabel(0);
+	}
+
+	public Target parse2R(String[] words, String[] pos) {
+		return parse2R(new Sentence(words, pos));
+	}
+
+	/**
+	 * 得到依存句法树
+	 * @param sent 句子
+	 * @return 依存句法树，句子为空时返回null
+	 */
+	public DependencyTree parse2T(Sentence sent) {
+		Target target = parse2R(sent);
+		return new FNLPSent(sent.words, sent.tags, target.getHeads(), target.getRelations()).toTree();
+	}
+
+	/**
+	 * 得到依存句法树
+	 * @param words 词数组
+	 * @param pos 词性数组
+	 * @return 依存句法树
+	 */
+	public DependencyTree parse2T(String[] words, String[] pos) {
+		return parse2T(new Sentence(words, pos));
+	}
+
+	public int[] parse(Instance inst) {
+		return parse2R((Sentence) inst).getHeads();
+	}
+
+	public int[] parse(String[] words, String[] pos) {
+		return parse(new Sentence(words, pos));
+	}
+
+	public Predict<int[]> getBest(Instance inst) {
+		Predict<Target> res = _getBestParse((Sentence) inst);
+		Predict<int[]> ret = new Predict<int[]>();
+		ret.add(res.getLabel(0).getHeads(), res.getScore(0));
+		return ret;
+	}
+
+	/**
+	 * 得到支持的依存关系类型集合
+	 * @return 依存关系类型集合
+	 */
+	public Set<String> getSupportedTypes() {
+		Set<String> typeset = new HashSet<String>();
+		Set<String> set = la.toSet();
+		Iterator<String> itt = set.iterator();
+		while (itt.hasNext()) {
+			String type = itt.next();
+			if (type.length() == 1)
+				continue;
+			typeset.add(type.substring(1));
+		}
+		return typeset;
+	}
+}
@@ -0,0 +1,292 @@
+package edu.fudan.nlp.parser.dep;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import edu.fudan.nlp.parser.Sentence;
+import edu.fudan.nlp.parser.Target;
+
+/**
+ * Arc-standard转移分析的状态：栈、缓冲区和已建立的依存弧。
+ *
+ * 栈底为虚拟的根节点。动作有三种：
+ * SHIFT 将缓冲区的第一个词压栈；
+ * LEFT  栈顶第二个词作为栈顶词的左孩子，出栈；
+ * RIGHT 栈顶词作为栈顶第二个词的右孩子，出栈，栈顶第二个为根节点时栈顶词成为句子的核心词。
+ * 每个词恰好压栈一次、出栈一次，n个词的句子恰好有2n个动作。
+ * 只在缓冲区为空且栈中只剩一个词时才允许连到根节点，因此结果总是一棵投射的树。
+ *
+ * @author xpqiu
+ */
+public class ArcStandardState {
+
+	/**
+	 * 动作类型
+	 */
+	public enum Action {
+		SHIFT, LEFT, RIGHT
+	}
+
+	static final String NULL = "N*";
+	static final String ROOT = "R*";
+
+	/**
+	 * 根节点在栈中的位置值
+	 */
+	private static final int ROOT_ID = -1;
+	/**
+	 * 还没有中心词
+	 */
+	private static final int NONE = -2;
+
+	private final Sentence sent;
+	private final int n;
+
+	private final int[] stack;
+	private int top;
+	/**
+	 * 缓冲区的第一个词
+	 */
+	private int next;
+
+	private final int[] heads;
+	private final String[] relations;
+	/**
+	 * 每个词最左、最右的孩子，没有时为-1
+	 */
+	private final int[] leftmost;
+	private final int[] rightmost;
+	private final int[] leftCount;
+	private final int[] rightCount;
+
+	/**
+	 * 构造函数
+	 * @param sent 句子
+	 */
+	public ArcStandardState(Sentence sent) {
+		this.sent = sent;
+		n = sent.length();
+		stack = new int[n + 1];
+		stack[0] = ROOT_ID;
+		top = 0;
+		next = 0;
+		heads = new int[n];
+		Arrays.fill(heads, NONE);
+		relations = new String[n];
+		leftmost = new int[n];
+		rightmost = new int[n];
+		Arrays.fill(leftmost, -1);
+		Arrays.fill(rightmost, -1);
+		leftCount = new int[n];
+		rightCount = new int[n];
+	}
+
+	public boolean isFinalState() {
+		return next == n && top == 0;
+	}
+
+	/**
+	 * 动作在当前状态是否可以执行
+	 */
+	public boolean canDo(Action action) {
+		switch (action) {
+		case SHIFT:
+			return next < n;
+		case LEFT:
+			return top >= 2;
+		default:
+			if (top < 1)
+				return false;
+			return top >= 2 || next == n;
+		}
+	}
+
+	/**
+	 * 执行动作
+	 * @param action 动作
+	 * @param relation 依存关系，SHIFT时忽略
+	 */
+	public void next(Action action, String relation) {
+		assert canDo(action);
+		switch (action) {
+		case SHIFT:
+			stack[++top] = next++;
+			break;
+		case LEFT: {
+			int h = stack[top];
+			int d = stack[top - 1];
+			attach(h, d, relation);
+			stack[top - 1] = h;
+			top--;
+			break;
+		}
+		default: {
+			int h = stack[top - 1];
+			int d = stack[top];
+			attach(h, d, relation);
+			top--;
+		}
+		}
+	}
+
+	private void attach(int h, int d, String relation) {
+		heads[d] = h;
+		relations[d] = relation;
+		if (h == ROOT_ID)
+			return;
+		if (d < h) {
+			if (leftmost[h] == -1 || d < leftmost[h])
+				leftmost[h] = d;
+			leftCount[h]++;
+		} else {
+			if (rightmost[h] == -1 || d > rightmost[h])
+				rightmost[h] = d;
+			rightCount[h]++;
+		}
+	}
+
+	/**
+	 * 标准答案中当前状态应执行的动作（静态oracle）
+	 * @param gold 标准答案中每个词的中心词，核心词为-1
+	 * @param goldChildren 标准答案中每个词的孩子个数
+	 * @return 动作，标准答案不是投射的单根树时返回null
+	 */
+	Action oracle(int[] gold, int[] goldChildren) {
+		if (top >= 2) {
+			int s0 = stack[top];
+			int s1 = stack[top - 1];
+			if (gold[s1] == s0)
+				return Action.LEFT;
+			if (gold[s0] == s1 && leftCount[s0] + rightCount[s0] == goldChildren[s0])
+				return Action.RIGHT;
+		} else if (top == 1 && next == n) {
+			return gold[stack[1]] == ROOT_ID ? Action.RIGHT : null;
+		}
+		return next < n ? Action.SHIFT : null;
+	}
+
+	/**
+	 * 动作LEFT或RIGHT的依存词
+	 */
+	int dependent(Action action) {
+		return action == Action.LEFT ? stack[top - 1] : stack[top];
+	}
+
+	/**
+	 * 栈中第i个词（0为栈顶），不存在或为根节点时返回-1
+	 */
+	private int stackAt(int i) {
+		return top - i >= 1 ? stack[top - i] : -1;
+	}
+
+	/**
+	 * 缓冲区中第i个词，不存在时返回-1
+	 */
+	private int bufferAt(int i) {
+		return next + i < n ? next + i : -1;
+	}
+
+	private String word(int id) {
+		return id < 0 ? NULL : sent.words[id];
+	}
+
+	private String tag(int id) {
+		return id < 0 ? NULL : sent.tags[id];
+	}
+
+	/**
+	 * 得到当前状态的特征：栈顶三个词、缓冲区前三个词、栈顶两个词最左最右的孩子，以及它们的组合
+	 *
+	 * @return 特征表
+	 */
+	public ArrayList<String> getFeatures() {
+		ArrayList<String> f = new ArrayList<String>(40);
+		int s0 = stackAt(0);
+		int s1 = stackAt(1);
+		int s2 = stackAt(2);
+		int b0 = bufferAt(0);
+		int b1 = bufferAt(1);
+		int b2 = bufferAt(2);
+		String s0w = word(s0), s0p = tag(s0);
+		String s1w = word(s1), s1p = tag(s1);
+		String b0w = word(b0), b0p = tag(b0);
+		String b1p = tag(b1);
+		if (top == 1)
+			s1p = s1w = ROOT;
+
+		f.add("s0w/" + s0w);
+		f.add("s0p/" + s0p);
+		f.add("s0wp/" + s0w + "/" + s0p);
+		f.add("s1w/" + s1w);
+		f.add("s1p/" + s1p);
+		f.add("s1wp/" + s1w + "/" + s1p);
+		f.add("s2p/" + tag(s2));
+		f.add("b0w/" + b0w);
+		f.add("b0p/" + b0p);
+		f.add("b0wp/" + b0w + "/" + b0p);
+		f.add("b1w/" + word(b1));
+		f.add("b1p/" + b1p);
+		f.add("b2p/" + tag(b2));
+
+		f.add("s0s1w/" + s0w + "/" + s1w);
+		f.add("s0s1p/" + s0p + "/" + s1p);
+		f.add("s0ws1p/" + s0w + "/" + s1p);
+		f.add("s0ps1w/" + s0p + "/" + s1w);
+		f.add("s0b0p/" + s0p + "/" + b0p);
+		f.add("s0b0w/" + s0w + "/" + b0w);
+		f.add("s1s0b0p/" + s1p + "/" + s0p + "/" + b0p);
+		f.add("s2s1s0p/" + tag(s2) + "/" + s1p + "/" + s0p);
+		f.add("s0b0b1p/" + s0p + "/" + b0p + "/" + b1p);
+
+		int s0l = s0 < 0 ? -1 : leftmost[s0];
+		int s0r = s0 < 0 ? -1 : rightmost[s0];
+		int s1l = s1 < 0 ? -1 : leftmost[s1];
+		int s1r = s1 < 0 ? -1 : rightmost[s1];
+		f.add("s0lp/" + tag(s0l));
+		f.add("s0rp/" + tag(s0r));
+		f.add("s1lp/" + tag(s1l));
+		f.add("s1rp/" + tag(s1r));
+		f.add("s0lw/" + word(s0l));
+		f.add("s1rw/" + word(s1r));
+		f.add("s0lps0s1p/" + tag(s0l) + "/" + s0p + "/" + s1p);
+		f.add("s1rps1s0p/" + tag(s1r) + "/" + s1p + "/" + s0p);
+		if (s0l >= 0)
+			f.add("s0lr/" + relations[s0l]);
+		if (s1r >= 0)
+			f.add("s1rr/" + relations[s1r]);
+
+		if (s0 >= 0 && s1 >= 0) {
+			String d = distance(s0 - s1);
+			f.add("dist/" + d);
+			f.add("dists0s1p/" + d + "/" + s0p + "/" + s1p);
+			f.add("dists0s1w/" + d + "/" + s0w + "/" + s1w);
+		}
+		if (s0 >= 0) {
+			f.add("s0vl/" + s0p + "/" + valency(leftCount[s0]));
+			f.add("s0vr/" + s0p + "/" + valency(rightCount[s0]));
+		}
+		if (s1 >= 0)
+			f.add("s1vr/" + s1p + "/" + valency(rightCount[s1]));
+		return f;
+	}
+
+	private static String distance(int d) {
+		if (d <= 4)
+			return String.valueOf(d);
+		return d <= 9 ? "5-9" : "10+";
+	}
+
+	private static String valency(int v) {
+		return v <= 3 ? String.valueOf(v) : "4+";
+	}
+
+	/**
+	 * 分析结果，核心词的中心词为-1
+	 */
+	public Target getTarget() {
+		int[] h = new int[n];
+		for (int i = 0; i < n; i++)
+			h[i] = heads[i] == NONE ? ROOT_ID : heads[i];
+		return new Target(h, relations.clone());
+	}
+}
@@ -0,0 +1,155 @@
+package edu.fudan.nlp.parser.dep;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.fudan.ml.classifier.linear.Linear;
+import edu.fudan.ml.classifier.linear.OnlineTrainer;
+import edu.fudan.ml.classifier.linear.inf.LinearMax;
+import edu.fudan.ml.classifier.linear.update.LinearMaxPAUpdate;
+import edu.fudan.ml.feature.SFGenerator;
+import edu.fudan.ml.loss.ZeroOneLoss;
+import edu.fudan.ml.types.Instance;
+import edu.fudan.ml.types.InstanceSet;
+import edu.fudan.ml.types.alphabet.AlphabetFactory;
+import edu.fudan.ml.types.alphabet.IFeatureAlphabet;
+import edu.fudan.ml.types.alphabet.LabelAlphabet;
+import edu.fudan.nlp.corpus.fnlp.FNLPCorpus;
+import edu.fudan.nlp.corpus.fnlp.FNLPDoc;
+import edu.fudan.nlp.corpus.fnlp.FNLPSent;
+import edu.fudan.nlp.parser.Sentence;
+import edu.fudan.nlp.parser.Target;
+
+/**
+ * {@link ArcStandardParser} 的训练类
+ *
+ * 按标准答案的动作序列（静态oracle）把每个句子展开为2n个分类样本，用 {@link OnlineTrainer} 训练线性分类器。
+ * 标准答案不是投射的单根树的句子被跳过。
+ * 训练：java edu.fudan.nlp.parser.dep.ArcStandardTrainer 语料目录 模型文件 [迭代次数]
+ * 语料为FNLP格式，见 {@link FNLPCorpus#read(String, String)}。
+ *
+ * @author xpqiu
+ */
+public class ArcStandardTrainer {
+
+	/**
+	 * 最大迭代次数
+	 */
+	public int iternum = 20;
+	/**
+	 * 步长阈值
+	 */
+	public float c = 0.1f;
+
+	private AlphabetFactory factory;
+	private IFeatureAlphabet fa;
+	private LabelAlphabet la;
+
+	public ArcStandardTrainer() {
+		factory = AlphabetFactory.buildFactory();
+		fa = factory.DefaultFeatureAlphabet();
+		la = factory.DefaultLabelAlphabet();
+	}
+
+	/**
+	 * 读入语料
+	 * @param path 语料目录或文件
+	 * @param suffix 文件后缀，为null时读入所有文件
+	 * @return 带标准答案的句子
+	 */
+	public static List<Sentence> read(String path, String suffix) throws IOException {
+		FNLPCorpus corpus = new FNLPCorpus();
+		corpus.read(path, suffix);
+		List<Sentence> sents = new ArrayList<Sentence>();
+		for (FNLPDoc doc : corpus.docs) {
+			for (FNLPSent sent : doc.sentences)
+				sents.add(new Sentence(sent.words, sent.tags, new Target(sent.heads, sent.relations)));
+		}
+		return sents;
+	}
+
+	/**
+	 * 标准答案的动作序列
+	 * @param sent 带标准答案的句子
+	 * @return 动作标签，标准答案不是投射的单根树时返回null
+	 */
+	static List<String> oracle(Sentence sent) {
+		Target target = (Target) sent.getTarget();
+		int[] gold = target.getHeads();
+		int n = sent.length();
+		int[] goldChildren = new int[n];
+		for (int i = 0; i < n; i++) {
+			if (gold[i] >= 0)
+				goldChildren[gold[i]]++;
+		}
+		List<String> labels = new ArrayList<String>(2 * n);
+		ArcStandardState state = new ArcStandardState(sent);
+		while (!state.isFinalState()) {
+			ArcStandardState.Action action = state.oracle(gold, goldChildren);
+			if (action == null)
+				return null;
+			String relation = null;
+			if (action != ArcStandardState.Action.SHIFT)
+				relation = target.getDepClass(state.dependent(action));
+			labels.add(ArcStandardParser.toLabel(action, relation));
+			state.next(action, relation);
+		}
+		return labels;
+	}
+
+	/**
+	 * 训练
+	 * @param sents 带标准答案的句子
+	 * @return 线性分类器
+	 */
+	public Linear train(List<Sentence> sents) {
+		// 第一遍确定动作标签，特征索引要为每个标签留出位置
+		List<Sentence> used = new ArrayList<Sentence>(sents.size());
+		List<List<String>> sequences = new ArrayList<List<String>>(sents.size());
+		la.lookupIndex("S");
+		for (Sentence sent : sents) {
+			List<String> labels = oracle(sent);
+			if (labels == null)
+				continue;
+			for (String label : labels)
+				la.lookupIndex(label);
+			used.add(sent);
+			sequences.add(labels);
+		}
+		la.setStopIncrement(true);
+		int ysize = la.size();
+		System.out.println("Sentences: " + used.size() + "\tSkipped: " + (sents.size() - used.size())
+				+ "\tLabels: " + ysize);
+
+		InstanceSet instset = new InstanceSet(factory);
+		for (int k = 0; k < used.size(); k++) {
+			ArcStandardState state = new ArcStandardState(used.get(k));
+			for (String label : sequences.get(k)) {
+				int[] data = JointParser.addFeature(fa, state.getFeatures(), ysize);
+				instset.add(new Instance(data, la.lookupIndex(label)));
+				state.next(ArcStandardParser.toAction(label), label.length() > 1 ? label.substring(1) : null);
+			}
+		}
+		factory.setStopIncrement(true);
+		System.out.println("Instances: " + instset.size() + "\tFeatures: " + fa.size());
+
+		LinearMax inferencer = new LinearMax(new SFGenerator(), ysize);
+		ZeroOneLoss loss = new ZeroOneLoss();
+		OnlineTrainer trainer = new OnlineTrainer(inferencer, new LinearMaxPAUpdate(loss), loss,
+				fa.size(), iternum, c);
+		return trainer.train(instset);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: ArcStandardTrainer corpus_path model_file [iter]");
+			return;
+		}
+		ArcStandardTrainer trainer = new ArcStandardTrainer();
+		if (args.length > 2)
+			trainer.iternum = Integer.parseInt(args[2]);
+		Linear model = trainer.train(read(args[0], null));
+		model.saveTo(args[1]);
+	}
+}
@@ -172,6 +172,26 @@ public class DependencyTree implements Serializable {
 		return size;
 	}
 
+	/**
+	 * 复制以此节点为根的子树，新子树的根没有父节点
+	 * @return 子树的拷贝
+	 */
+	public DependencyTree copy() {
+		DependencyTree tree = new DependencyTree(id, word, pos, relation);
+		tree.size = size;
+		for (int i = 0; i < leftChilds.size(); i++) {
+			DependencyTree ch = leftChilds.get(i).copy();
+			ch.parent = tree;
+			tree.leftChilds.add(ch);
+		}
+		for (int i = 0; i < rightChilds.size(); i++) {
+			DependencyTree ch = rightChilds.get(i).copy();
+			ch.parent = tree;
+			tree.rightChilds.add(ch);
+		}
+		return tree;
+	}
+
 	public List<DependencyTree> getAllChild(){
 		List<DependencyTree> childs = new ArrayList<DependencyTree>();
 		childs.addAll(leftChilds);
@@ -3,12 +3,16 @@ package edu.fudan.nlp.parser.dep;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import edu.fudan.ml.classifier.Predict;
 import edu.fudan.ml.classifier.linear.Linear;
+import edu.fudan.ml.classifier.linear.inf.Inferencer;
+import edu.fudan.ml.classifier.linear.inf.LinearMax;
 import edu.fudan.ml.types.Instance;
 import edu.fudan.ml.types.alphabet.AlphabetFactory;
 import edu.fudan.ml.types.alphabet.IFeatureAlphabet;
@@ -22,6 +26,7 @@ import gnu.trove.list.array.TIntArrayList;
  * 依赖句法分析器类，同时标注依赖关系类型
  * 
  * 输入单个分完词的句子(包含词性)，使用Yamada分析算法完成依存结构分析。
+ * 缺省为贪心搜索，设置柱宽度（见 {@link #setBeamWidth(int)}）后使用柱搜索，以速度换取准确率。
  * 
  * @author 
  */
@@ -33,6 +38,14 @@ public class JointParser implements Serializable{
 	private Linear models;
 	private IFeatureAlphabet fa;
 	private LabelAlphabet la;
+	/**
+	 * 整数形式的特征抽取，按需建立
+	 */
+	private transient JointParsingFeatures features;
+	/**
+	 * 柱搜索的宽度，不大于1时为贪心搜索
+	 */
+	private int beamWidth = 1;
 
 
 
@@ -90,15 +103,40 @@ public class JointParser implements Serializable{
 	}
 
 
+	/**
+	 * 设置柱搜索的宽度
+	 * @param width 宽度，不大于1时为贪心搜索
+	 */
+	public void setBeamWidth(int width) {
+		beamWidth = width;
+	}
+
+	public int getBeamWidth() {
+		return beamWidth;
+	}
+
+	private JointParsingFeatures features() {
+		if (features == null)
+			features = new JointParsingFeatures(fa, ysize);
+		return features;
+	}
+
 	private Predict<DependencyTree> _getBestParse(Sentence sent){
+		if (beamWidth > 1)
+			return beamParse(sent, beamWidth);
 		float score = 0.0f;
 
 		// 分析中的状态
 		JointParsingState state = new JointParsingState(sent);
+		JointParsingFeatures.Extractor extractor = features().extractor(sent);
 		while (!state.isFinalState()) {
 
-			Predict<String> estimates;
-			estimates = estimateActions(state);
+			// 未受上次归约影响的词对直接使用上一遍的结果
+			Predict<String> estimates = state.getEstimates();
+			if (estimates == null) {
+				estimates = estimateActions(state, extractor, 2);
+				state.setEstimates(estimates);
+			}
 
 			String action = estimates.getLabel(0);
 			if (!action.equals("S")){
@@ -117,6 +155,119 @@ public class JointParser implements Serializable{
 		return res;
 	}
 
+	/**
+	 * 柱搜索
+	 *
+	 * 每一步对柱中所有状态的当前焦点词对打分，按动作概率的对数和从高到低展开，
+	 * 签名相同的状态只保留得分高的一个，保留前width个未结束的状态。
+	 * 动作为SHIFT时与贪心搜索相同，记下概率最大的非SHIFT动作，一遍都为SHIFT时执行其中概率最大的。
+	 * 得分只会减小，柱中没有得分超过已结束的最好状态时停止
+	 * @param sent 句子
+	 * @param width 柱宽度
+	 * @return 得分最高的依存树，得分的计算与贪心搜索相同
+	 */
+	private Predict<DependencyTree> beamParse(Sentence sent, int width) {
+		JointParsingFeatures.Extractor extractor = features().extractor(sent);
+		BeamItem best = null;
+		ArrayList<BeamItem> beam = new ArrayList<BeamItem>(width);
+		BeamItem init = new BeamItem(new JointParsingState(sent), 0, 0);
+		if (init.state.isFinalState())
+			best = init;
+		else
+			beam.add(init);
+		ArrayList<BeamCandidate> cands = new ArrayList<BeamCandidate>();
+		HashSet<String> seen = new HashSet<String>();
+		while (!beam.isEmpty()) {
+			estimateActions(beam, extractor, width);
+			cands.clear();
+			for (BeamItem item : beam) {
+				Predict<String> est = item.state.getEstimates();
+				for (int i = 0; i < est.size() && est.getLabel(i) != null; i++)
+					cands.add(new BeamCandidate(item, est, i));
+			}
+			Collections.sort(cands);
+
+			ArrayList<BeamItem> next = new ArrayList<BeamItem>(width);
+			seen.clear();
+			for (int i = 0; i < cands.size() && next.size() < width; i++) {
+				BeamCandidate c = cands.get(i);
+				if (best != null && c.logProb <= best.logProb)
+					break;
+				BeamItem item = expand(c);
+				if (item == null)
+					continue;
+				if (item.state.isFinalState()) {
+					if (best == null || item.logProb > best.logProb)
+						best = item;
+				} else if (seen.add(item.state.signature())) {
+					next.add(item);
+				}
+			}
+			beam = next;
+		}
+		Predict<DependencyTree> res = new Predict<DependencyTree>();
+		res.add(best.state.trees.get(0), best.score);
+		return res;
+	}
+
+	/**
+	 * 在状态的拷贝上执行候选动作
+	 * @return 新状态，SHIFT没有备选的动作时返回null
+	 */
+	private BeamItem expand(BeamCandidate c) {
+		Predict<String> est = c.estimates;
+		String action = est.getLabel(c.rank);
+		JointParsingState state = c.from.state.copy();
+		float score = c.from.score;
+		if (!action.equals("S")) {
+			doNext(action, state);
+			score += est.getScore(c.rank);
+		} else {
+			int k = 0;
+			while (k < est.size() && est.getLabel(k) != null && est.getLabel(k).equals("S"))
+				k++;
+			if (k == est.size() || est.getLabel(k) == null)
+				return null;
+			doNext(est.getLabel(k), est.getScore(k), state);
+			score += est.getScore(k);
+		}
+		return new BeamItem(state, c.logProb, score);
+	}
+
+	/**
+	 * 对柱中还没有缓存结果的状态打分。模型为 {@link LinearMax} 时所有状态一起计算
+	 * @param n 保留的动作个数
+	 */
+	private void estimateActions(List<BeamItem> beam, JointParsingFeatures.Extractor extractor, int n) {
+		n = Math.max(n, 2);
+		ArrayList<JointParsingState> states = new ArrayList<JointParsingState>(beam.size());
+		for (BeamItem item : beam) {
+			if (item.state.getEstimates() == null)
+				states.add(item.state);
+		}
+		if (states.isEmpty())
+			return;
+		Inferencer inf = models.getInferencer();
+		if (!(inf instanceof LinearMax)) {
+			for (JointParsingState state : states)
+				state.setEstimates(estimateActions(state, extractor, n));
+			return;
+		}
+		int[][] data = new int[states.size()][];
+		for (int b = 0; b < data.length; b++) {
+			extractor.extract(states.get(b));
+			data[b] = extractor.toArray();
+		}
+		float[][] scores = new float[data.length][ysize];
+		((LinearMax) inf).getScores(data, scores);
+		for (int b = 0; b < data.length; b++) {
+			Predict<Integer> ret = new Predict<Integer>(ysize);
+			for (int i = 0; i < ysize; i++)
+				ret.add(i, scores[b][i]);
+			states.get(b).setEstimates(toActions(ret, n));
+		}
+	}
+
 	/**
 	 * 动作预测
 	 * 
@@ -126,32 +277,135 @@ public class JointParser implements Serializable{
 	 *            特征名到特征ID的对应表，特征抽取时使用特征名，模型中使用特征ID，
 	 * @param //model
 	 *            分类模型
-	 * @param //features
-	 *            当前状态的特征
+	 * @param extractor
+	 *            句子的特征抽取器
+	 * @param n
+	 *            保留的动作个数
 	 * @return 动作及其概率 ［［动作1，概率1］，［动作2，概率2］，［动作3，概率3］］ 动作： 1->LEFT; 2->RIGHT;
 	 *         0->SHIFT
 	 */
-	private Predict<String> estimateActions(JointParsingState state) {
+	private Predict<String> estimateActions(JointParsingState state, JointParsingFeatures.Extractor extractor, int n) {
 		// 当前状态的特征
-		ArrayList<String> features = state.getFeatures();
-		Instance inst = new Instance(addFeature(fa, features, ysize));
+		extractor.extract(state);
+		Instance inst = new Instance(extractor.toArray());
 
 		Predict<Integer> ret = models.classify(inst,ysize);
+		return toActions(ret, n);
+	}
+
+	/**
+	 * 将前n个类别转换为动作，得分为 {@link Predict#normalize()} 归一化后的值，
+	 * 柱搜索使用的对数概率由原始得分的log-softmax得到
+	 * @param ret 原始得分，从大到小排列
+	 */
+	private Predict<String> toActions(Predict<Integer> ret, int n) {
+		n = Math.min(n, ret.size());
+		double[] logProbs = logSoftmax(ret.scores);
 		ret.normalize();
-		Predict<String> result =new Predict<String>(2);
-		float total = 0;
-		for (int i = 0; i < 2; i++) {
+		ActionEstimates result = new ActionEstimates(n);
+		for (int i = 0; i < n; i++) {
 			Integer guess = ret.getLabel(i);
 			if(guess==null) //bug：可能为空，待修改。 xpqiu
 				break;
 			String action = la.lookupString(guess);
-			result.add(action,ret.getScore(i));	
+			result.add(action,ret.getScore(i),logProbs[i]);
 		}
 
 
 		return result;
 	}
 
+	/**
+	 * 原始得分的log-softmax，先减去最大值，得分差很大时也不会溢出。
+	 * {@link Predict#normalize()} 以最大得分的一半为温度，最大得分为负时概率的大小顺序会颠倒，不能用于柱搜索
+	 * @param scores 原始得分，没有结果的位置为负无穷
+	 * @return 每个得分对应的对数概率
+	 */
+	static double[] logSoftmax(float[] scores) {
+		double[] logProbs = new double[scores.length];
+		double max = Double.NEGATIVE_INFINITY;
+		for (float s : scores)
+			max = Math.max(max, s);
+		if (max == Double.NEGATIVE_INFINITY) {
+			Arrays.fill(logProbs, Double.NEGATIVE_INFINITY);
+			return logProbs;
+		}
+		double sum = 0;
+		for (float s : scores)
+			sum += Math.exp(s - max);
+		double lse = max + Math.log(sum);
+		for (int i = 0; i < scores.length; i++)
+			logProbs[i] = scores[i] - lse;
+		return logProbs;
+	}
+
+	/**
+	 * 动作预测结果，另外保存每个动作的对数概率
+	 */
+	private static final class ActionEstimates extends Predict<String> {
+		final double[] logProbs;
+
+		ActionEstimates(int n) {
+			super(n);
+			logProbs = new double[n];
+		}
+
+		/**
+		 * 按归一化得分插入动作，对数概率随之移动
+		 * @return 插入位置，没有插入时返回-1
+		 */
+		int add(String action, float score, double logProb) {
+			int i = add(action, score);
+			if (i != -1) {
+				System.arraycopy(logProbs, i, logProbs, i + 1, logProbs.length - i - 1);
+				logProbs[i] = logProb;
+			}
+			return i;
+		}
+	}
+
+	/**
+	 * 柱中的状态
+	 */
+	private static final class BeamItem {
+		final JointParsingState state;
+		/**
+		 * 所有动作概率的对数和，用于排序
+		 */
+		final double logProb;
+		/**
+		 * 与贪心搜索相同的得分
+		 */
+		final float score;
+
+		BeamItem(JointParsingState state, double logProb, float score) {
+			this.state = state;
+			this.logProb = logProb;
+			this.score = score;
+		}
+	}
+
+	/**
+	 * 候选动作：状态from执行其预测结果中的第rank个动作，按logProb从大到小排序
+	 */
+	private static final class BeamCandidate implements Comparable<BeamCandidate> {
+		final BeamItem from;
+		final Predict<String> estimates;
+		final int rank;
+		final double logProb;
+
+		BeamCandidate(BeamItem from, Predict<String> estimates, int rank) {
+			this.from = from;
+			this.estimates = estimates;
+			this.rank = rank;
+			this.logProb = from.logProb + ((ActionEstimates) estimates).logProbs[rank];
+		}
+
+		public int compareTo(BeamCandidate o) {
+			return Double.compare(o.logProb, logProb);
+		}
+	}
+
 	public Target jointParse(Instance inst)  {
 		Sentence sent = (Sentence) inst;
 
@@ -0,0 +1,253 @@
+package edu.fudan.nlp.parser.dep;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.fudan.ml.types.alphabet.IFeatureAlphabet;
+import edu.fudan.nlp.parser.Sentence;
+import gnu.trove.map.hash.TIntIntHashMap;
+
+/**
+ * {@link JointParsingState#getFeatures()} 的整数形式，直接得到特征的索引，
+ * 顺序与 {@link JointParser#addFeature(IFeatureAlphabet, java.util.ArrayList, int)} 的结果相同，
+ * 与原有模型完全兼容。
+ *
+ * 除焦点词对的组合特征外，每个特征都是某个模板（位置、词或词性、是否孩子）加上某个词的词或词性，
+ * 因此每个句子按 模板×词 缓存特征索引，每种特征串只拼接和查找一次；
+ * 句首、句尾和空孩子的特征与句子无关，在所有句子间共享。
+ * 线程安全，每个句子使用一个 {@link Extractor}。
+ *
+ * @author xpqiu
+ */
+public final class JointParsingFeatures {
+
+	/**
+	 * 模板种类：词、词性、左孩子的词、左孩子的词性、右孩子的词、右孩子的词性
+	 */
+	private static final String[] KINDS = { JointParsingState.LEX,
+			JointParsingState.POS, JointParsingState.CH_L_LEX,
+			JointParsingState.CH_L_POS, JointParsingState.CH_R_LEX,
+			JointParsingState.CH_R_POS };
+	private static final int LEX = 0;
+	private static final int POS = 1;
+	private static final int LC = 2;
+	private static final int RC = 4;
+
+	/**
+	 * 句首、句尾特征后的数字不超过此值
+	 */
+	private static final int BOUNDS = 8;
+
+	/**
+	 * 未计算的特征索引
+	 */
+	private static final int NONE = -2;
+
+	private final IFeatureAlphabet fa;
+	private final int ysize;
+
+	/**
+	 * 模板t的特征前缀，t = (side*(WINDOW+1)+i)*KINDS.length+kind，side为0时是焦点左边
+	 */
+	private final String[] prefixes;
+	/**
+	 * 空孩子特征的索引，按模板
+	 */
+	private final int[] nulls;
+	/**
+	 * 句首、句尾特征的索引，按 模板×BOUNDS+数字
+	 */
+	private final int[] bounds;
+
+	/**
+	 * 构造函数
+	 * @param fa 特征词典
+	 * @param ysize 动作个数
+	 */
+	public JointParsingFeatures(IFeatureAlphabet fa, int ysize) {
+		this.fa = fa;
+		this.ysize = ysize;
+		int w = JointParsingState.WINDOW + 1;
+		prefixes = new String[2 * w * KINDS.length];
+		for (int side = 0; side < 2; side++) {
+			for (int i = 0; i < w; i++) {
+				for (int k = 0; k < KINDS.length; k++)
+					prefixes[template(side, i, k)] = (side == 0 ? "-" : "+") + i + KINDS[k];
+			}
+		}
+		nulls = new int[prefixes.length];
+		Arrays.fill(nulls, NONE);
+		bounds = new int[prefixes.length * BOUNDS];
+		Arrays.fill(bounds, NONE);
+	}
+
+	private static int template(int side, int i, int kind) {
+		return (side * (JointParsingState.WINDOW + 1) + i) * KINDS.length + kind;
+	}
+
+	private int lookup(String s) {
+		return fa.lookupIndex(s, ysize);
+	}
+
+	private int nullIndex(int t) {
+		int idx = nulls[t];
+		if (idx == NONE) {
+			idx = lookup(prefixes[t] + JointParsingState.NULL);
+			nulls[t] = idx;
+		}
+		return idx;
+	}
+
+	private int boundIndex(int t, String mark, int v) {
+		int slot = t * BOUNDS + v;
+		int idx = bounds[slot];
+		if (idx == NONE) {
+			idx = lookup(prefixes[t] + mark + v);
+			bounds[slot] = idx;
+		}
+		return idx;
+	}
+
+	/**
+	 * 得到一个句子的特征抽取器
+	 */
+	public Extractor extractor(Sentence sent) {
+		return new Extractor(sent);
+	}
+
+	/**
+	 * 一个句子的特征抽取器，结果写入可重用的数组，非线程安全
+	 */
+	public final class Extractor {
+
+		private final Sentence sent;
+		private final int n;
+		/**
+		 * 模板t、第id个词的特征索引为 table[t*n+id]
+		 */
+		private final int[] table;
+		/**
+		 * 焦点词对的组合特征索引，键为 (左词id*n+右词id)*2+(0词性 1词)
+		 */
+		private final TIntIntHashMap pairs;
+		private int[] buf = new int[64];
+		private int size;
+
+		Extractor(Sentence sent) {
+			this.sent = sent;
+			this.n = sent.length();
+			table = new int[prefixes.length * n];
+			Arrays.fill(table, NONE);
+			pairs = new TIntIntHashMap(2 * n, 0.5f, -1, NONE);
+		}
+
+		/**
+		 * 抽取状态的特征，结果在 {@link #buffer()} 的前若干个元素中
+		 * @return 特征个数
+		 */
+		public int extract(JointParsingState state) {
+			size = 0;
+			if (state.isFinalState())
+				return 0;
+			List<DependencyTree> trees = state.trees;
+			int leftFocus = state.leftFocus;
+			int rightFocus = leftFocus + 1;
+			int l = trees.get(leftFocus).id;
+			int r = trees.get(rightFocus).id;
+			add(pair(l, r, 0));
+			add(pair(l, r, 1));
+
+			for (int i = 0; i <= JointParsingState.WINDOW; i++) {
+				if (leftFocus - i < 0) {
+					add(boundIndex(template(0, i, LEX), JointParsingState.START, i - leftFocus));
+					add(boundIndex(template(0, i, POS), JointParsingState.START, i - leftFocus));
+				} else {
+					tree(trees.get(leftFocus - i), 0, i);
+				}
+			}
+			for (int i = 0; i <= JointParsingState.WINDOW; i++) {
+				if (rightFocus + i >= trees.size()) {
+					int v = rightFocus + i - trees.size() + 3;
+					add(boundIndex(template(1, i, LEX), JointParsingState.END, v));
+					add(boundIndex(template(1, i, POS), JointParsingState.END, v));
+				} else {
+					tree(trees.get(rightFocus + i), 1, i);
+				}
+			}
+			return size;
+		}
+
+		/**
+		 * 特征索引，只有前 {@link #extract(JointParsingState)} 个有效
+		 */
+		public int[] buffer() {
+			return buf;
+		}
+
+		/**
+		 * 复制出有效的特征索引
+		 */
+		public int[] toArray() {
+			return Arrays.copyOf(buf, size);
+		}
+
+		private void tree(DependencyTree tree, int side, int i) {
+			int t = template(side, i, 0);
+			add(token(t + LEX, tree.id));
+			add(token(t + POS, tree.id));
+			children(tree.leftChilds, t + LC);
+			children(tree.rightChilds, t + RC);
+		}
+
+		private void children(List<DependencyTree> childs, int t) {
+			if (childs.size() == 0) {
+				add(nullIndex(t));
+				add(nullIndex(t + 1));
+				return;
+			}
+			for (int j = 0; j < childs.size(); j++) {
+				int id = childs.get(j).id;
+				add(token(t, id));
+				add(token(t + 1, id));
+			}
+		}
+
+		/**
+		 * 模板t加上第id个词的词或词性
+		 */
+		private int token(int t, int id) {
+			int slot = t * n + id;
+			int idx = table[slot];
+			if (idx == NONE) {
+				String v = t % 2 == LEX ? sent.words[id] : sent.tags[id];
+				idx = lookup(prefixes[t] + v);
+				table[slot] = idx;
+			}
+			return idx;
+		}
+
+		private int pair(int l, int r, int kind) {
+			int key = (l * n + r) * 2 + kind;
+			int idx = pairs.get(key);
+			if (idx == NONE) {
+				StringBuilder sb = new StringBuilder();
+				sb.append("+-2");
+				if (kind == 0)
+					sb.append(JointParsingState.POS).append(sent.tags[l]).append("/").append(sent.tags[r]);
+				else
+					sb.append(JointParsingState.LEX).append(sent.words[l]).append("/").append(sent.words[r]);
+				idx = lookup(sb.toString());
+				pairs.put(key, idx);
+			}
+			return idx;
+		}
+
+		private void add(int idx) {
+			if (idx == -1)
+				return;
+			if (size == buf.length)
+				buf = Arrays.copyOf(buf, size * 2);
+			buf[size++] = idx;
+		}
+	}
+}
@@ -3,6 +3,7 @@ package edu.fudan.nlp.parser.dep;
 import java.util.ArrayList;
 import java.util.List;
 
+import edu.fudan.ml.classifier.Predict;
 import edu.fudan.ml.types.alphabet.AlphabetFactory;
 import edu.fudan.ml.types.alphabet.IFeatureAlphabet;
 import edu.fudan.ml.types.sv.HashSparseVector;
@@ -21,19 +22,23 @@ import gnu.trove.list.array.TIntArrayList;
 public class JointParsingState{
 
 	
-	private static final String END = "E*";
-	private static final String START = "S*";
+	static final String END = "E*";
+	static final String START = "S*";
 	
-	private static final String CH_L_LEX = "/LL/";
-	private static final String CH_R_LEX = "/RL/";
-	private static final String NULL = "N*";
+	static final String CH_L_LEX = "/LL/";
+	static final String CH_R_LEX = "/RL/";
+	static final String NULL = "N*";
 
-	private static final String CH_R_POS = "/RP/";
+	static final String CH_R_POS = "/RP/";
 	
-	private static final String CH_L_POS = "/LP/";
+	static final String CH_L_POS = "/LP/";
 	
-	private static final String LEX = "/L/";
-	private static final String POS = "/P/";
+	static final String LEX = "/L/";
+	static final String POS = "/P/";
+	/**
+	 * 特征的上下文窗口大小，焦点词对左右各取的子树个数
+	 */
+	static final int WINDOW = 2;
 	private int ysize = 0;
 
 	/**
@@ -62,6 +67,12 @@ public class JointParsingState{
 
 	private String[] depClassOfBuild;
 
+	/**
+	 * 每对相邻子树 (trees[i], trees[i+1]) 的动作预测结果，为null时需要重新计算。
+	 * 特征只取决于焦点词对附近的子树，归约后只有归约位置附近的结果失效，其余的下一遍直接使用
+	 */
+	private ArrayList<Predict<String>> estimates;
+
 	/**
 	 * 构造函数
 	 * 
@@ -87,9 +98,60 @@ public class JointParsingState{
 		probsOfBuild = new float[trees.size() - 1];
 		actionsOfBuild = new Action[trees.size() - 1];
 		depClassOfBuild = new String[trees.size()-1];
+		estimates = new ArrayList<Predict<String>>(trees.size() - 1);
+		for (int i = 0; i < trees.size() - 1; i++)
+			estimates.add(null);
+	}
+
+
+	/**
+	 * 复制状态，用于柱搜索。子树被复制，动作预测结果共享
+	 * @return 状态的拷贝
+	 */
+	public JointParsingState copy() {
+		JointParsingState state = new JointParsingState();
+		state.sent = sent;
+		state.trees = new ArrayList<DependencyTree>(trees.size());
+		for (int i = 0; i < trees.size(); i++)
+			state.trees.add(trees.get(i).copy());
+		state.leftFocus = leftFocus;
+		state.isUpdated = isUpdated;
+		state.isFinal = isFinal;
+		if (probsOfBuild != null) {
+			state.probsOfBuild = probsOfBuild.clone();
+			state.actionsOfBuild = actionsOfBuild.clone();
+			state.depClassOfBuild = depClassOfBuild.clone();
+			state.estimates = new ArrayList<Predict<String>>(estimates);
+		}
+		return state;
+	}
+
+	private JointParsingState() {
+	}
+
+	/**
+	 * 状态的签名：焦点位置、本遍是否归约过以及已建立的依存弧。
+	 * 签名相同的状态此后的动作和特征都相同（只有全为SHIFT时备选的动作可能不同），柱搜索中只保留得分高的一个
+	 */
+	public String signature() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(leftFocus).append(isUpdated ? '+' : '-');
+		for (int i = 0; i < trees.size(); i++)
+			signature(trees.get(i), sb);
+		return sb.toString();
+	}
+
+	private static void signature(DependencyTree tree, StringBuilder sb) {
+		sb.append('(').append(tree.id);
+		if (tree.relation != null)
+			sb.append(' ').append(tree.relation);
+		for (int i = 0; i < tree.leftChilds.size(); i++)
+			signature(tree.leftChilds.get(i), sb);
+		sb.append('-');
+		for (int i = 0; i < tree.rightChilds.size(); i++)
+			signature(tree.rightChilds.get(i), sb);
+		sb.append(')');
 	}
-	
-	
 
 	/**
 	 * 得到当前状态的特征
@@ -117,8 +179,8 @@ public class JointParsingState{
 		featurelist.add(lexFeature1.toString());
 
 		// 设定上下文窗口大小
-		int l = 2;
-		int r = 2;
+		int l = WINDOW;
+		int r = WINDOW;
 		for (int i = 0; i <= l; i++) {
 			// 特征前缀
 			String posFeature = "-" + String.valueOf(i) + POS;
@@ -224,6 +286,35 @@ public class JointParsingState{
 		return featurelist;
 	}
 
+	/**
+	 * 得到当前焦点词对的动作预测结果
+	 * 
+	 * @return 没有缓存时返回null
+	 */
+	public Predict<String> getEstimates() {
+		return estimates.get(leftFocus);
+	}
+
+	/**
+	 * 缓存当前焦点词对的动作预测结果
+	 */
+	public void setEstimates(Predict<String> est) {
+		estimates.set(leftFocus, est);
+	}
+
+	/**
+	 * 第p对子树归约为一棵后，删除该对的结果，
+	 * 并使特征窗口中包含新子树的词对 [p-WINDOW-1, p+WINDOW] 的结果失效，
+	 * 右边的结果随子树一起左移
+	 */
+	private void invalidate(int p) {
+		estimates.remove(p);
+		int from = Math.max(0, p - WINDOW - 1);
+		int to = Math.min(estimates.size() - 1, p + WINDOW);
+		for (int i = from; i <= to; i++)
+			estimates.set(i, null);
+	}
+
 	public boolean isFinalState() {
 		return trees.size()==0||trees.size() == 1 || isFinal;
 	}
@@ -280,6 +371,7 @@ public class JointParsingState{
 			trees.get(leftFocus + 1).setDepClass(depClass);  			
 			trees.get(leftFocus).addRightChild(trees.get(leftFocus + 1));
 			trees.remove(leftFocus + 1);
+			invalidate(leftFocus);
 			isUpdated = true;
 
 			break;
@@ -287,6 +379,7 @@ public class JointParsingState{
 			trees.get(leftFocus).setDepClass(depClass);			
 			trees.get(leftFocus + 1).addLeftChild(trees.get(leftFocus));
 			trees.remove(leftFocus);
+			invalidate(leftFocus);
 			isUpdated = true;
 			break;
 		default:
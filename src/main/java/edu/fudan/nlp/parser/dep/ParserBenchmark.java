@@ -0,0 +1,124 @@
+package edu.fudan.nlp.parser.dep;
+
+import java.util.List;
+
+import edu.fudan.nlp.parser.Sentence;
+import edu.fudan.nlp.parser.Target;
+
+/**
+ * {@link ArcStandardParser} 与 {@link JointParser} 的速度和准确率比较，
+ * 按句子长度分段给出每句的分析时间，语料带标准答案时给出依存准确率（UAS）和带关系的准确率（LAS）。
+ * 测试：java edu.fudan.nlp.parser.dep.ParserBenchmark joint_model arc_model corpus_path [rounds]
+ * 语料格式见 {@link ArcStandardTrainer#read(String, String)}。
+ * @author xpqiu
+ *
+ */
+public class ParserBenchmark {
+
+	/**
+	 * 句子长度分段的上界
+	 */
+	private static final int[] BOUNDS = { 10, 20, 40, 80, Integer.MAX_VALUE };
+
+	/**
+	 * 一种分析器
+	 */
+	private interface Runner {
+		String name();
+
+		Target parse(Sentence sent);
+	}
+
+	private static int bucket(int len) {
+		int b = 0;
+		while (len > BOUNDS[b])
+			b++;
+		return b;
+	}
+
+	private static void run(Runner runner, List<Sentence> sents, int rounds) {
+		int[] count = new int[BOUNDS.length];
+		long[] time = new long[BOUNDS.length];
+		long tokens = 0;
+		int correct = 0;
+		int labeled = 0;
+		int gold = 0;
+		//预热并计算准确率
+		for (Sentence sent : sents) {
+			Target t = runner.parse(sent);
+			if (!(sent.getTarget() instanceof Target))
+				continue;
+			Target g = (Target) sent.getTarget();
+			for (int i = 0; i < sent.length(); i++) {
+				gold++;
+				if (t.getHead(i) == g.getHead(i)) {
+					correct++;
+					//JointParser不标注核心词的关系，核心词只比较中心词
+					String r = t.getDepClass(i);
+					if (g.getHead(i) == -1 || (r != null && r.equals(g.getDepClass(i))))
+						labeled++;
+				}
+			}
+		}
+		for (int r = 0; r < rounds; r++) {
+			for (Sentence sent : sents) {
+				int b = bucket(sent.length());
+				long start = System.nanoTime();
+				runner.parse(sent);
+				time[b] += System.nanoTime() - start;
+				count[b]++;
+				tokens += sent.length();
+			}
+		}
+		long total = 0;
+		for (int b = 0; b < BOUNDS.length; b++)
+			total += time[b];
+		System.out.println(runner.name());
+		if (gold > 0)
+			System.out.printf("UAS: %.4f\tLAS: %.4f%n", (float) correct / gold, (float) labeled / gold);
+		System.out.printf("sents/s: %.0f\ttokens/s: %.0f%n", sents.size() * rounds / (total / 1e9),
+				tokens / (total / 1e9));
+		System.out.println("length\tsents\tms/sent");
+		int low = 1;
+		for (int b = 0; b < BOUNDS.length; b++) {
+			if (count[b] > 0) {
+				String range = BOUNDS[b] == Integer.MAX_VALUE ? low + "+" : low + "-" + BOUNDS[b];
+				System.out.printf("%s\t%d\t%.3f%n", range, count[b] / rounds, time[b] / 1e6 / count[b]);
+			}
+			low = BOUNDS[b] + 1;
+		}
+		System.out.println();
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			System.err.println("Usage: ParserBenchmark joint_model arc_model corpus_path [rounds]");
+			return;
+		}
+		final JointParser joint = new JointParser(args[0]);
+		final ArcStandardParser arc = new ArcStandardParser(args[1]);
+		List<Sentence> sents = ArcStandardTrainer.read(args[2], null);
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+		System.out.println("Sentences: " + sents.size());
+		System.out.println();
+
+		run(new Runner() {
+			public String name() {
+				return "JointParser";
+			}
+
+			public Target parse(Sentence sent) {
+				return joint.parse2R(sent);
+			}
+		}, sents, rounds);
+		run(new Runner() {
+			public String name() {
+				return "ArcStandardParser";
+			}
+
+			public Target parse(Sentence sent) {
+				return arc.parse2R(sent);
+			}
+		}, sents, rounds);
+	}
+}
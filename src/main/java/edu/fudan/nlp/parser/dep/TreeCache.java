@@ -1,22 +1,65 @@
 package edu.fudan.nlp.parser.dep;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 
 import edu.fudan.nlp.corpus.fnlp.FNLPSent;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
 
+/**
+ * 依存句法分析结果的缓存，句子与缓存中的某个句子匹配时直接返回缓存的结构。
+ * 缓存句子的每个位置可以是"*"（任意值）或以"|"分隔的可选值，多个句子匹配时取最先读入的。
+ *
+ * 查找时按句子长度分组，组内再按哪些位置不是"*"分为若干形状，
+ * 每个形状把各个可选值组合的哈希值索引到句子，因此查找只需对每个形状计算一次哈希，与缓存大小无关。
+ * 可选值组合过多的句子不建索引，查找时逐个比较。
+ *
+ * 可以保存为二进制格式（见 {@link #save(String)}），载入时不需要解析文本。
+ * 转换：java edu.fudan.nlp.parser.dep.TreeCache 文本文件 二进制文件
+ */
 public class TreeCache {
 
+	private static final byte[] MAGIC = { 'F', 'N', 'L', 'P', 'T', 'C', 0, 0 };
+	/**
+	 * 二进制格式版本
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * 一个句子最多展开的可选值组合数，超过时不建索引
+	 */
+	private static final int MAX_EXPAND = 256;
+
 	public static LinkedList<TreeCacheSent> sents;
 
+	/**
+	 * 与sents相同，用于按下标访问
+	 */
+	private ArrayList<TreeCacheSent> list;
+	/**
+	 * 按句子长度的索引
+	 */
+	private HashMap<Integer, Bucket> buckets;
+
 	public TreeCache(){
 		sents = new LinkedList<TreeCacheSent>();
+		list = new ArrayList<TreeCacheSent>();
+		buckets = new HashMap<Integer, Bucket>();
 	}
 
 	public void read(String file) throws IOException {
@@ -33,61 +76,391 @@ public class TreeCache {
 		ArrayList<String> carrier = new ArrayList<String>();
 		while ((line = bfr.readLine()) != null) {
 			line = line.trim();
-			if (line.matches("^$")){
+			if (line.length()==0){
 				if(carrier.size()>0){
-					TreeCacheSent sent = new TreeCacheSent();						
+					TreeCacheSent sent = new TreeCacheSent();
 					sent.parse(carrier,0,true); //TODO: 需要根据不同语料修改
 
-					sents.add(sent);
+					add(sent);
 					carrier.clear();
 				}
 			}else
 				carrier.add(line);
 		}
 		if(!carrier.isEmpty()){
-			TreeCacheSent sent = new TreeCacheSent();				
+			TreeCacheSent sent = new TreeCacheSent();
 			sent.parse(carrier,0,true); //TODO: 需要根据不同语料修改
-			sents.add(sent);
+			add(sent);
 			carrier.clear();
 		}
+		bfr.close();
+	}
+
+	/**
+	 * 加入一个句子，排在已有的句子之后
+	 */
+	public void add(TreeCacheSent sent) {
+		int k = list.size();
+		sents.add(sent);
+		list.add(sent);
+		int len = sent.words.length;
+		Bucket bucket = buckets.get(len);
+		if(bucket==null){
+			bucket = new Bucket();
+			buckets.put(len, bucket);
+		}
+		bucket.add(sent, k);
 	}
 
 	public DependencyTree get(String[] words, String[] tags){
-		for(int k=0;k<sents.size();k++){
-			TreeCacheSent sent = sents.get(k);
-			boolean match = true;
-			if(sent.words.length!=words.length)
-				continue;
-			for(int i=0;i<words.length;i++){
-				if((sent.words[i]!=null)&&(Arrays.binarySearch(sent.words[i],words[i])<0)){
-					match = false;
-					break;
+		if(words==null)
+			return null;
+		Bucket bucket = buckets.get(words.length);
+		if(bucket==null)
+			return null;
+		int k = bucket.find(words, tags);
+		if(k<0)
+			return null;
+		TreeCacheSent sent = list.get(k);
+		FNLPSent newsent = new FNLPSent(words, tags, sent.heads, sent.relations);
+		return newsent.toTree();
+	}
+
+	/**
+	 * 缓存的句子个数
+	 */
+	public int size() {
+		return list.size();
+	}
+
+	/**
+	 * 句子是否匹配，tags为null时只能匹配不限词性的句子
+	 */
+	private static boolean matches(TreeCacheSent sent, String[] words, String[] tags) {
+		if(tags==null){
+			for(int i=0;i<sent.tags.length;i++){
+				if(sent.tags[i]!=null)
+					return false;
+			}
+			tags = new String[words.length];
+		}
+		return sent.matches(words, tags);
+	}
+
+	private static long mix(long h, String s) {
+		return (h ^ s.hashCode()) * 0x9E3779B97F4A7C15L;
+	}
+
+	/**
+	 * 同一长度的句子
+	 */
+	private static final class Bucket {
+		/**
+		 * 按非"*"位置分组，键的每个字符表示一个位置：第0位为有词，第1位为有词性
+		 */
+		private final HashMap<String, Shape> shapes = new HashMap<String, Shape>();
+		/**
+		 * 按加入的顺序，与shapes的值相同
+		 */
+		private final ArrayList<Shape> order = new ArrayList<Shape>();
+		/**
+		 * 不建索引的句子及其下标
+		 */
+		private final ArrayList<TreeCacheSent> rest = new ArrayList<TreeCacheSent>();
+		private final ArrayList<Integer> restIds = new ArrayList<Integer>();
+
+		void add(TreeCacheSent sent, int k) {
+			int len = sent.words.length;
+			char[] mask = new char[len];
+			long combos = 1;
+			for(int i=0;i<len;i++){
+				int m = 0;
+				if(sent.words[i]!=null){
+					m |= 1;
+					combos *= sent.words[i].length;
+				}
+				if(sent.tags[i]!=null){
+					m |= 2;
+					combos *= sent.tags[i].length;
 				}
-				if((sent.tags[i]!=null)&&(Arrays.binarySearch(sent.tags[i],tags[i])<0)){
-					match = false;
+				mask[i] = (char) m;
+				if(combos>MAX_EXPAND)
 					break;
-				}				
+			}
+			if(combos>MAX_EXPAND){
+				rest.add(sent);
+				restIds.add(k);
+				return;
+			}
+			String key = new String(mask);
+			Shape shape = shapes.get(key);
+			if(shape==null){
+				shape = new Shape(mask);
+				shapes.put(key, shape);
+				order.add(shape);
+			}
+			shape.add(sent, k);
+		}
 
+		/**
+		 * @return 最先加入的匹配句子的下标，没有时返回-1
+		 */
+		int find(String[] words, String[] tags) {
+			int best = -1;
+			for(int s=0;s<order.size();s++){
+				int k = order.get(s).find(words, tags);
+				if(k>=0&&(best<0||k<best))
+					best = k;
 			}
-			if(match){
-				FNLPSent newsent = new FNLPSent(words, tags, sent.heads, sent.relations);
-				return newsent.toTree();
+			for(int j=0;j<rest.size();j++){
+				int k = restIds.get(j);
+				if(best>=0&&k>best)
+					break;
+				if(matches(rest.get(j), words, tags))
+					return k;
 			}
+			return best;
 		}
-		return null;
 	}
 
+	/**
+	 * 非"*"位置相同的句子，每个句子的每个可选值组合按哈希值索引
+	 */
+	private static final class Shape {
+		private final int[] wordPos;
+		private final int[] tagPos;
+		/**
+		 * 哈希值到最先加入的句子在members中的位置
+		 */
+		private final TLongIntHashMap index = new TLongIntHashMap(16, 0.5f, 0, -1);
+		private final ArrayList<TreeCacheSent> members = new ArrayList<TreeCacheSent>();
+		private final ArrayList<Integer> ids = new ArrayList<Integer>();
+
+		Shape(char[] mask) {
+			int nw = 0, nt = 0;
+			for(int i=0;i<mask.length;i++){
+				if((mask[i]&1)!=0)
+					nw++;
+				if((mask[i]&2)!=0)
+					nt++;
+			}
+			wordPos = new int[nw];
+			tagPos = new int[nt];
+			nw = nt = 0;
+			for(int i=0;i<mask.length;i++){
+				if((mask[i]&1)!=0)
+					wordPos[nw++] = i;
+				if((mask[i]&2)!=0)
+					tagPos[nt++] = i;
+			}
+		}
+
+		void add(TreeCacheSent sent, int k) {
+			int m = members.size();
+			members.add(sent);
+			ids.add(k);
+			String[][] alts = new String[wordPos.length+tagPos.length][];
+			for(int j=0;j<wordPos.length;j++)
+				alts[j] = sent.words[wordPos[j]];
+			for(int j=0;j<tagPos.length;j++)
+				alts[wordPos.length+j] = sent.tags[tagPos[j]];
+			expand(alts, 0, wordPos.length, sent.words.length, m);
+		}
+
+		private void expand(String[][] alts, int j, int split, long h, int m) {
+			if(j==split)
+				h = mix(h, "\t");
+			if(j==alts.length){
+				if(!index.containsKey(h))
+					index.put(h, m);
+				return;
+			}
+			for(int a=0;a<alts[j].length;a++)
+				expand(alts, j+1, split, mix(h, alts[j][a]), m);
+		}
+
+		int find(String[] words, String[] tags) {
+			if(tags==null&&tagPos.length>0)
+				return -1;
+			long h = words.length;
+			for(int j=0;j<wordPos.length;j++)
+				h = mix(h, words[wordPos[j]]);
+			h = mix(h, "\t");
+			for(int j=0;j<tagPos.length;j++)
+				h = mix(h, tags[tagPos[j]]);
+			int m = index.get(h);
+			if(m<0)
+				return -1;
+			if(matches(members.get(m), words, tags))
+				return ids.get(m);
+			//哈希冲突，逐个比较
+			for(int j=0;j<members.size();j++){
+				if(matches(members.get(j), words, tags))
+					return ids.get(j);
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * 文件是否为二进制格式
+	 * @param file 缓存文件
+	 * @return 文件存在且以二进制格式的魔数开头
+	 */
+	public static boolean isSnapshot(String file) {
+		File f = new File(file);
+		if (!f.isFile() || f.length() < MAGIC.length)
+			return false;
+		byte[] b = new byte[MAGIC.length];
+		InputStream in = null;
+		try {
+			in = new FileInputStream(f);
+			int n = 0;
+			while (n < b.length) {
+				int r = in.read(b, n, b.length - n);
+				if (r < 0)
+					return false;
+				n += r;
+			}
+		} catch (IOException e) {
+			return false;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+		return Arrays.equals(b, MAGIC);
+	}
+
+	/**
+	 * 保存为二进制格式。
+	 * <pre>
+	 * 魔数(8字节) 版本(int)
+	 * 字符串个数(int) 字符串(UTF)...
+	 * 句子个数(int) 每个句子：长度 每个位置的 词 词性+1 中心词+1 关系+1
+	 * </pre>
+	 * 句子中的值为变长编码的整数，词、词性和关系为字符串表的下标，null为0。
+	 * @param file 二进制文件
+	 */
+	public void save(String file) throws IOException {
+		TObjectIntHashMap<String> ids = new TObjectIntHashMap<String>(1024, 0.5f, -1);
+		ArrayList<String> strings = new ArrayList<String>();
+		for(TreeCacheSent sent : list){
+			for(int j=0;j<sent.owords.length;j++){
+				intern(ids, strings, sent.owords[j]);
+				intern(ids, strings, sent.otags[j]);
+				intern(ids, strings, sent.relations[j]);
+			}
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file)));
+		try {
+			out.write(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(strings.size());
+			for(String s : strings)
+				out.writeUTF(s);
+			out.writeInt(list.size());
+			for(TreeCacheSent sent : list){
+				int len = sent.owords.length;
+				writeVarInt(out, len);
+				for(int j=0;j<len;j++){
+					writeVarInt(out, ids.get(sent.owords[j]));
+					writeVarInt(out, sent.otags[j]==null?0:ids.get(sent.otags[j])+1);
+					writeVarInt(out, sent.heads[j]+1);
+					writeVarInt(out, sent.relations[j]==null?0:ids.get(sent.relations[j])+1);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * 从二进制格式载入，句子排在已有的句子之后
+	 * @param file 二进制文件
+	 */
+	public void load(String file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+		try {
+			byte[] b = new byte[MAGIC.length];
+			in.readFully(b);
+			if(!Arrays.equals(b, MAGIC))
+				throw new IOException("不是依存句法缓存的二进制格式：" + file);
+			int version = in.readInt();
+			if(version>VERSION)
+				throw new IOException("不支持的版本：" + version);
+			String[] strings = new String[in.readInt()];
+			for(int i=0;i<strings.length;i++)
+				strings[i] = in.readUTF();
+			int n = in.readInt();
+			for(int k=0;k<n;k++){
+				int len = readVarInt(in);
+				String[] owords = new String[len];
+				String[] otags = new String[len];
+				int[] heads = new int[len];
+				String[] relations = new String[len];
+				for(int j=0;j<len;j++){
+					owords[j] = strings[readVarInt(in)];
+					int t = readVarInt(in);
+					otags[j] = t==0?null:strings[t-1];
+					heads[j] = readVarInt(in)-1;
+					int r = readVarInt(in);
+					relations[j] = r==0?null:strings[r-1];
+				}
+				add(new TreeCacheSent(owords, otags, heads, relations));
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void intern(TObjectIntHashMap<String> ids, ArrayList<String> strings, String s) {
+		if(s!=null&&!ids.containsKey(s)){
+			ids.put(s, strings.size());
+			strings.add(s);
+		}
+	}
+
+	private static void writeVarInt(DataOutputStream out, int v) throws IOException {
+		while((v&~0x7F)!=0){
+			out.writeByte((v&0x7F)|0x80);
+			v >>>= 7;
+		}
+		out.writeByte(v);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int v = 0;
+		for(int shift=0;;shift+=7){
+			int b = in.readUnsignedByte();
+			v |= (b&0x7F)<<shift;
+			if((b&0x80)==0)
+				return v;
+		}
+	}
 
 	/**
 	 * @param args
-	 * @throws IOException 
+	 * @throws IOException
 	 */
 	public static void main(String[] args) throws IOException {
+		if(args.length==2){
+			TreeCache tc = new TreeCache();
+			tc.read(args[0]);
+			tc.save(args[1]);
+			System.out.println("句子个数：" + tc.size());
+			return;
+		}
 		TreeCache tc = new TreeCache();
-		tc.read("./models/dict_dep.txt");		
+		tc.read("./models/dict_dep.txt");
 		DependencyTree tree = tc.get(new String[]{"上海","的"}, new String[]{"地名","结构助词"});
 		System.out.println(tree);
-		
+
 		tree = tc.get(new String[]{"上海","呢"}, new String[]{"地名","结构助词"});
 		System.out.println(tree);
 		tree = tc.get(new String[]{"上海"}, new String[]{"地名"});
@@ -62,20 +62,10 @@ public class TreeCacheSent {
 				assert (j+pos) == Integer.parseInt(toks[0]);
 			}
 			owords[j] = toks[start];
-			if(owords[j].equals("*"))
-				words[j] = null;
-			else{
-				words[j] = owords[j].split("\\|");
-				Arrays.sort(words[j]);
-			}
+			words[j] = alternatives(owords[j]);
 			if(toks.length>start+1){
 				otags[j] = toks[start+1];
-				if(otags[j].equals("*"))
-					tags[j] = null;
-				else{
-					tags[j] = otags[j].split("\\|");
-					Arrays.sort(tags[j]);
-				}
+				tags[j] = alternatives(otags[j]);
 			}
 			if(toks.length>start+2)
 				heads[j] = Integer.parseInt(toks[start+2])-pos;
@@ -90,6 +80,56 @@ public class TreeCacheSent {
 
 
 
+	/**
+	 * 由各列直接建立，用于从二进制格式读入
+	 * @param owords 词，"*"表示任意词，"|"分隔可选的词
+	 * @param otags 词性，格式同词，为null时表示任意词性
+	 * @param heads 中心词位置
+	 * @param relations 依赖关系
+	 */
+	public TreeCacheSent(String[] owords, String[] otags, int[] heads, String[] relations) {
+		int len = owords.length;
+		this.owords = owords;
+		this.otags = otags;
+		this.heads = heads;
+		this.relations = relations;
+		words = new String[len][];
+		tags = new String[len][];
+		for(int j=0;j<len;j++){
+			words[j] = alternatives(owords[j]);
+			if(otags[j]!=null)
+				tags[j] = alternatives(otags[j]);
+		}
+	}
+
+	/**
+	 * 排序后的可选值，"*"返回null
+	 */
+	private static String[] alternatives(String s) {
+		if(s.equals("*"))
+			return null;
+		String[] alts = s.split("\\|");
+		Arrays.sort(alts);
+		return alts;
+	}
+
+	/**
+	 * 是否与句子匹配：每个位置的词和词性为任意值或可选值之一
+	 * @param words 词
+	 * @param tags 词性
+	 */
+	public boolean matches(String[] words, String[] tags) {
+		if(this.words.length!=words.length)
+			return false;
+		for(int i=0;i<words.length;i++){
+			if((this.words[i]!=null)&&(Arrays.binarySearch(this.words[i],words[i])<0))
+				return false;
+			if((this.tags[i]!=null)&&(Arrays.binarySearch(this.tags[i],tags[i])<0))
+				return false;
+		}
+		return true;
+	}
+
 	public String toString(){
 		StringBuffer sb = new StringBuffer();
 		for(int j=0;j<words.length;j++){
@@ -1,12 +1,13 @@
 package edu.fudan.nlp.pipe.seq;
 
 import java.io.Serializable;
-import java.util.Arrays;
 
 import edu.fudan.ml.types.Dictionary;
 import edu.fudan.ml.types.Instance;
+import edu.fudan.ml.types.LabelMask;
 import edu.fudan.ml.types.alphabet.LabelAlphabet;
 import edu.fudan.nlp.pipe.Pipe;
+import edu.fudan.util.DoubleArrayTrie;
 
 /**
  * 将字符序列转换成特征序列 因为都是01特征，这里保存的是索引号
@@ -16,17 +17,6 @@ import edu.fudan.nlp.pipe.Pipe;
  */
 public class DictLabel extends Pipe  {
 
-	class WordInfo{
-
-		String word;
-		int len;
-
-		public WordInfo(String string, int n) {
-			word = string;
-			len = n;
-		}
-	}
-
 	private static final long serialVersionUID = -8634966199670429510L;
 
 	protected Dictionary dict;
@@ -54,107 +44,108 @@ public class DictLabel extends Pipe  {
 		this.dict = dict;
 	}
 
+	public Dictionary getDict() {
+		return dict;
+	}
+
 	public void addThruPipe(Instance instance) throws Exception {
+		if (instance.getData() instanceof TextSequence) {
+			TextSequence seq = (TextSequence) instance.getData();
+			LabelMask dicData = new LabelMask(seq.length(), labels.size());
+			DoubleArrayTrie trie = dict.getTrie();
+			for (int i = 0; i < seq.length(); i++) {
+				int len = match(trie, seq, i, dicData);
+				if (len > 0 && !mutiple)
+					i += len - 1;
+			}
+			instance.setDicData(dicData);
+			return;
+		}
 		String[][] data = (String[][]) instance.getData();
 
 		int length = data[0].length;
-		int[][] dicData = new int[length][labels.size()];				
+		LabelMask dicData = new LabelMask(length, labels.size());
 
-		int indexLen = dict.getIndexLen();
+		DoubleArrayTrie trie = dict.getTrie();
 		for (int i = 0; i < length; i++) {
-			if (i + indexLen <= length) {
-				WordInfo s = getNextN(data[0], i, indexLen);
-				int[] index = dict.getIndex(s.word);
-				if(index != null) {
-					for(int k = 0; k < index.length; k++) {
-						int n = index[k];
-						if(n == indexLen) { //下面那个check函数的特殊情况，只为了加速
-							label(i, s.len, dicData);
-							if(!mutiple){
-								i = i + s.len;
-								break;
-							}
-						}
-						int len = check(i, n, length, data[0], dicData);
-						if(len>0&&!mutiple){
-							i = i + len;
-							break;
-						}
-					}
-				}
-			}
+			int len = match(trie, data[0], i, dicData);
+			if (len > 0 && !mutiple)
+				i += len - 1;
 		}
 
-		for (int i = 0; i < length; i++) 
-			if (hasWay(dicData[i]))
-				for(int j = 0; j < dicData[i].length; j++)
-					dicData[i][j]++;
-
 		instance.setDicData(dicData);
 	}
 
-	private boolean hasWay(int[] ia) {
-		for(int i = 0; i < ia.length; i++) {
-			if(ia[i] == -1)
-				return true;
+	/**
+	 * 从位置i开始沿Trie树逐字符匹配词典中的词，词可以跨越多个单元。
+	 * 允许歧义时标记所有匹配的词，否则只标记最长的词。
+	 * @param trie 词典的Trie树
+	 * @param data 单元序列
+	 * @param i 起始位置
+	 * @param tempData 标记结果
+	 * @return 最长的词覆盖的单元数，没有匹配时为0
+	 */
+	private int match(DoubleArrayTrie trie, String[] data, int i, LabelMask tempData) {
+		int longest = 0;
+		int state = trie.root();
+		scan: for (int j = i; j < data.length; j++) {
+			String unit = data[j];
+			for (int k = 0; k < unit.length(); k++) {
+				state = trie.next(state, unit.charAt(k));
+				if (state < 0)
+					break scan;
+				if (trie.value(state) >= 0) {
+					longest = j - i + 1;
+					if (mutiple)
+						label(i, longest, tempData);
+				}
+			}
 		}
-		return false;
+		if (longest > 0 && !mutiple)
+			label(i, longest, tempData);
+		return longest;
 	}
 
 	/**
-	 * 
-	 * @param i
-	 * @param n
-	 * @param length
-	 * @param data
-	 * @param tempData
-	 * @return
+	 * 与 {@link #match(DoubleArrayTrie, String[], int, LabelMask)} 相同，直接读取原文字符
 	 */
-	private int check(int i, int n, int length, String[] data, int[][] tempData) {
-
-		WordInfo s = getNextN(data, i, n);
-		if (dict.contains(s.word)) {
-			label(i, s.len, tempData);	
-			return s.len;
+	private int match(DoubleArrayTrie trie, TextSequence seq, int i, LabelMask tempData) {
+		CharSequence text = seq.text();
+		int longest = 0;
+		int state = trie.root();
+		scan: for (int j = i; j < seq.length(); j++) {
+			for (int k = seq.start(j); k < seq.end(j); k++) {
+				state = trie.next(state, text.charAt(k));
+				if (state < 0)
+					break scan;
+				if (trie.value(state) >= 0) {
+					longest = j - i + 1;
+					if (mutiple)
+						label(i, longest, tempData);
+				}
+			}
 		}
-		return 0;
+		if (longest > 0 && !mutiple)
+			label(i, longest, tempData);
+		return longest;
 	}
+
 	/**
 	 * 
 	 * @param i
 	 * @param n
 	 * @param tempData
 	 */
-	private void label(int i, int n, int[][] tempData) {
+	private void label(int i, int n, LabelMask tempData) {
 		// 下面这部分依赖{1=B,2=M,3=E,0=S}		
 		if (n == 1) {			
-			tempData[i][idxS] = -1;
+			tempData.set(i, idxS);
 		} else {
-			tempData[i][idxB] = -1;
+			tempData.set(i, idxB);
 			for (int j = i + 1; j < i + n - 1; j++)
-				tempData[j][idxM] = -1;
-			tempData[i + n - 1][idxE] = -1;
-		}
-	}
-
-	/**
-	 * 得到从位置index开始的长度为N的字串
-	 * @param data String[]
-	 * @param index 起始位置
-	 * @param N 长度
-	 * @return
-	 */
-	public WordInfo getNextN(String[] data, int index, int N) {
-		StringBuilder sb = new StringBuilder();
-		int i = index;
-		while(sb.length()<N&&i<data.length){			
-			sb.append(data[i]);
-			i++;
+				tempData.set(j, idxM);
+			tempData.set(i + n - 1, idxE);
 		}
-		if(sb.length()<=N)	
-			return new WordInfo(sb.toString(),i-index);
-		else
-			return new WordInfo(sb.substring(0,N),i-index);
 	}
 
 }
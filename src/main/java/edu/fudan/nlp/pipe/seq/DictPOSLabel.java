@@ -5,8 +5,10 @@ import java.util.TreeSet;
 
 import edu.fudan.ml.types.Dictionary;
 import edu.fudan.ml.types.Instance;
+import edu.fudan.ml.types.LabelMask;
 import edu.fudan.ml.types.alphabet.LabelAlphabet;
 import edu.fudan.nlp.pipe.Pipe;
+import edu.fudan.util.DoubleArrayTrie;
 import edu.fudan.util.MultiValueMap;
 import edu.fudan.util.exception.LoadModelException;
 
@@ -28,6 +30,10 @@ public class DictPOSLabel  extends Pipe{
 		checkLabels();
 	}
 
+	public Dictionary getDict() {
+		return dict;
+	}
+
 	private void checkLabels(){
 		MultiValueMap<String, String> pos = dict.getPOSDict();
 		for(TreeSet<String> pp: pos.valueSets()){
@@ -46,39 +52,46 @@ public class DictPOSLabel  extends Pipe{
 	}
 
 	public void addThruPipe(Instance instance) throws Exception {
-		String[] data = (String[]) instance.getData();
-
-		int length = data.length;
-		int[][] dicData = new int[length][labels.size()];				
+		Object obj = instance.getData();
+		TextSequence seq = null;
+		String[] data = null;
+		int length;
+		if(obj instanceof TextSequence){
+			seq = (TextSequence) obj;
+			length = seq.length();
+		}else{
+			data = (String[]) obj;
+			length = data.length;
+		}
+		LabelMask dicData = new LabelMask(length, labels.size());
 
-		for(int i = 0; i < data.length; i++) {
+		//同一句子只使用词典的一个版本
+		Dictionary.Snapshot version = dict.getSnapshot();
+		MultiValueMap<String, String> dp = version.getPOSDict();
+		DoubleArrayTrie trie = version.getTrie();
+		for(int i = 0; i < length; i++) {
 			//			System.out.println(data[i]);
-			TreeSet<String> posset = dict.getPOS(data[i]);
+			String word;
+			if(seq != null){
+				//只为词典中的词生成字符串
+				if(trie.get(seq.text(), seq.start(i), seq.end(i)) < 0)
+					continue;
+				word = seq.value(0, i);
+			}else{
+				word = data[i];
+			}
+			TreeSet<String> posset = dp.getSet(word);
 			if(posset != null &&posset.size()>0){
-				for(String pos:posset)
-					dicData[i][labels.lookupIndex(pos)] = -1;
+				for(String pos:posset) {
+					//构造后才加入词典的新词性，模型中没有，忽略
+					int idx = labels.lookupIndex(pos);
+					if(idx >= 0 && idx < dicData.width())
+						dicData.set(i, idx);
+				}
 			}
 		}
 
-		for (int i = 0; i < length; i++) 
-			if (hasWay(dicData[i]))
-				for(int j = 0; j < dicData[i].length; j++)
-					dicData[i][j]++;
-
-		//		for(int i = 0; i < dicData.length; i++) {
-		//			for(int j = 0; j < dicData[i].length; j++)
-		//				System.out.print(dicData[i][j]);
-		//			System.out.println();
-		//		}
-
 		instance.setDicData(dicData);
 	}
 
-	private boolean hasWay(int[] ia) {
-		for(int i = 0; i < ia.length; i++) {
-			if(ia[i] == -1)
-				return true;
-		}
-		return false;
-	}
 }
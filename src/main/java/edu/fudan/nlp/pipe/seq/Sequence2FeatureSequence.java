@@ -33,6 +33,12 @@ public class Sequence2FeatureSequence extends Pipe{
 
 	public void addThruPipe(Instance instance) throws Exception {	
 		Object sdata =  instance.getData();
+		if(sdata instanceof TextSequence){
+			int[][] newData = templets.generate(instance, features, labels.size());
+			instance.setData(newData);
+			instance.setSource(sdata);
+			return;
+		}
 		String[][] data;
 		if(sdata instanceof String[]){
 			data = new String[1][];
@@ -51,14 +57,7 @@ public class Sequence2FeatureSequence extends Pipe{
 		}
 		instance.setData(data);
 		
-		int len = data[0].length;
-		int[][] newData = new int[len][templets.size()];
-		for (int i = 0; i < len; i++) {
-			for (int j = 0; j < templets.size(); j++) {				
-				newData[i][j] = templets.get(j).generateAt(instance,
-						this.features, i, labels.size());
-			}
-		}
+		int[][] newData = templets.generate(instance, features, labels.size());
 		instance.setData(newData);
 		instance.setSource(data);
 	}
@@ -40,11 +40,17 @@ public class String2Sequence extends Pipe implements Serializable {
 	/**
 	 * 将一个字符串转换成按标注序列
 	 * 每列一个字或连续英文token的信息
+	 * String以外的CharSequence（如包装char[]的CharBuffer）转换成 {@link TextSequence}，不生成单个字的字符串
 	 * @param inst 样本
 	 */
 	@Override
 	public void addThruPipe(Instance inst) {
-		String str = (String) inst.getData();
+		Object obj = inst.getData();
+		if(!(obj instanceof String)){
+			inst.setData(TextSequence.split((CharSequence) obj, isEnFilter));
+			return;
+		}
+		String str = (String) obj;
 		String[][] data;
 		if(isEnFilter){
 			data = genSequence(str);			
@@ -52,7 +58,7 @@ public class String2Sequence extends Pipe implements Serializable {
 			data = new String[2][str.length()];
 			for(int i = 0; i < str.length(); i++){
 				data[0][i] = str.substring(i,i+1);
-				data[1][i] = Chars.getStringType(data[0][i]).toString();
+				data[1][i] = Chars.char2StringType(Chars.getType(str, i)).toString();
 			}
 		}
 		inst.setData(data);
@@ -65,18 +71,20 @@ public class String2Sequence extends Pipe implements Serializable {
 	 */
 	public static String[][] genSequence(String sent){
 
-		CharType[] tags = Chars.getType(sent);
 		int len = sent.length();
 		ArrayList<String> words = new ArrayList<String>();
 		ArrayList<String> types = new ArrayList<String>();
 		int begin =0;
+		CharType next = len > 0 ? Chars.getType(sent, 0) : null;
 		for(int j=0; j<len; j++) {			
-			if(j<len-1 && tags[j]==CharType.L && tags[j+1]==CharType.L){//当前是连续英文
+			CharType cur = next;
+			next = j < len-1 ? Chars.getType(sent, j+1) : null;
+			if(cur==CharType.L && next==CharType.L){//当前是连续英文
 				continue;
-			}else if(j<len-1 &&tags[j]==CharType.D && tags[j+1]==CharType.D){//当前是连续数字
+			}else if(cur==CharType.D && next==CharType.D){//当前是连续数字
 				continue;
 			}
-			StringType st = Chars.char2StringType(tags[j]);
+			StringType st = Chars.char2StringType(cur);
 			String w = sent.substring(begin,j+1);
 			words.add(w);
 			types.add(st.toString());
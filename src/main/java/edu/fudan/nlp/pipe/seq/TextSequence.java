@@ -0,0 +1,146 @@
+package edu.fudan.nlp.pipe.seq;
+
+import java.nio.CharBuffer;
+
+import edu.fudan.nlp.cn.Chars;
+import edu.fudan.nlp.cn.Chars.CharType;
+import edu.fudan.nlp.cn.Chars.StringType;
+
+/**
+ * 直接建立在原文字符上的待标注序列，每个单元是原文中的一段 [start(i), end(i))，
+ * 不为单元生成字符串。原文可以是任意CharSequence，也可以是char[]的一段（见 {@link #wrap(char[], int, int)}）。
+ * 分词时每个单元是一个字或连续的英文、数字，第2行为单元的字符串类型，与 {@link String2Sequence} 生成的String[][]对应；
+ * 词性标注时每个单元是一个词，只有1行。
+ * 不支持的模板通过 {@link #toArrays()} 得到String[][]。
+ * @author xpqiu
+ *
+ */
+public final class TextSequence {
+
+	private final CharSequence text;
+	/**
+	 * 第i个单元为 [spans[2i], spans[2i+1])
+	 */
+	private final int[] spans;
+	private final int length;
+	/**
+	 * 单元的字符串类型，为null时只有1行
+	 */
+	private final StringType[] types;
+
+	private String[][] arrays;
+
+	/**
+	 * @param text 原文
+	 * @param spans 单元的起止位置，第i个单元为 [spans[2i], spans[2i+1])
+	 */
+	public TextSequence(CharSequence text, int[] spans) {
+		this(text, spans, spans.length / 2, null);
+	}
+
+	private TextSequence(CharSequence text, int[] spans, int length, StringType[] types) {
+		this.text = text;
+		this.spans = spans;
+		this.length = length;
+		this.types = types;
+	}
+
+	/**
+	 * 不复制地包装char[]的一段
+	 */
+	public static CharSequence wrap(char[] buf, int offset, int length) {
+		return CharBuffer.wrap(buf, offset, length);
+	}
+
+	/**
+	 * 将原文切分成待分词的单元，与 {@link String2Sequence} 相同
+	 * @param text 原文
+	 * @param isEnFilter 是否将连续的英文、数字作为一个单元
+	 */
+	public static TextSequence split(CharSequence text, boolean isEnFilter) {
+		int len = text.length();
+		int[] spans = new int[2 * len];
+		StringType[] types = new StringType[len];
+		int n = 0;
+		int begin = 0;
+		CharType next = len > 0 ? Chars.getType(text, 0) : null;
+		for (int j = 0; j < len; j++) {
+			CharType cur = next;
+			next = j < len - 1 ? Chars.getType(text, j + 1) : null;
+			if (isEnFilter && (cur == CharType.L || cur == CharType.D) && next == cur)
+				continue;
+			spans[2 * n] = begin;
+			spans[2 * n + 1] = j + 1;
+			types[n++] = Chars.char2StringType(cur);
+			begin = j + 1;
+		}
+		return new TextSequence(text, spans, n, types);
+	}
+
+	/**
+	 * 原文
+	 */
+	public CharSequence text() {
+		return text;
+	}
+
+	/**
+	 * 单元个数
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * 行数，即String[][]形式的第一维
+	 */
+	public int rows() {
+		return types == null ? 1 : 2;
+	}
+
+	public int start(int i) {
+		return spans[2 * i];
+	}
+
+	public int end(int i) {
+		return spans[2 * i + 1];
+	}
+
+	/**
+	 * 单元的第一个字符
+	 */
+	public char firstChar(int i) {
+		return text.charAt(spans[2 * i]);
+	}
+
+	/**
+	 * 单元的字符串类型
+	 */
+	public StringType type(int i) {
+		return types[i];
+	}
+
+	/**
+	 * 第row行第i个单元的字符串
+	 */
+	public String value(int row, int i) {
+		if (row == 0)
+			return text.subSequence(start(i), end(i)).toString();
+		return types[i].toString();
+	}
+
+	/**
+	 * 转换为String[][]，结果被缓存
+	 */
+	public String[][] toArrays() {
+		if (arrays == null) {
+			String[][] data = new String[rows()][length];
+			for (int k = 0; k < data.length; k++) {
+				for (int i = 0; i < length; i++)
+					data[k][i] = value(k, i);
+			}
+			arrays = data;
+		}
+		return arrays;
+	}
+}
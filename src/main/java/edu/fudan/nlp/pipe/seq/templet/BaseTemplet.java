@@ -6,7 +6,10 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import edu.fudan.ml.types.Instance;
+import edu.fudan.ml.types.alphabet.HashFeatureAlphabet;
 import edu.fudan.ml.types.alphabet.IFeatureAlphabet;
+import edu.fudan.nlp.pipe.seq.TextSequence;
+import edu.fudan.util.hash.IncrementalMurmurHash;
 
 /**
  * 类CRF模板 
@@ -87,6 +90,13 @@ public class BaseTemplet implements Templet {
 		return this.vars;
 	}
 
+	/**
+	 * 模板是否不包含x，此时在任意位置（长度大于1的序列）上生成的特征都相同
+	 */
+	public boolean isPositionInvariant() {
+		return dims.length == 0;
+	}
+
 	/**
 	 * 得到模板阶数
 	 */
@@ -111,6 +121,11 @@ public class BaseTemplet implements Templet {
 		//			if(len<minLen && order>0 )//训练时，对于长度过小的句子，不考虑开始、结束特征
 		//				return -1;
 		//		}
+		if (features instanceof HashFeatureAlphabet
+				&& ((HashFeatureAlphabet) features).isDirectHash())
+			return generateHashAt(data, null, (HashFeatureAlphabet) features, pos,
+					(int) Math.pow(numLabels[0], order + 1), TempletPlan.buffers().hash);
+
 		StringBuilder sb = new StringBuilder();
 		sb.append(id);
 		sb.append(':');
@@ -144,6 +159,121 @@ public class BaseTemplet implements Templet {
 		return index;
 	}
 
+	/**
+	 * 与generateAt相同，但不拼接特征字符串，直接计算其MurmurHash值
+	 * @param data 数据
+	 * @param cellLen 每个数据单元UTF-8编码的字节数，为null时现场计算
+	 * @param features 特征词典
+	 * @param pos 位置
+	 * @param indent 特征间隔，即numLabels^(order+1)
+	 * @param hash 复用的hash计算器
+	 */
+	int generateHashAt(String[][] data, int[][] cellLen,
+			HashFeatureAlphabet features, int pos, int indent, IncrementalMurmurHash hash) {
+		int len = data[0].length;
+		if(order>0&& len==1)
+			return -1;
+		//先计算特征串"id:x/x/"的字节数
+		int length = IncrementalMurmurHash.length(id) + 1;
+		for (int i = 0; i < dims.length; i++) {
+			int j = dims[i][0];
+			int k = dims[i][1];
+			if(k>data.length-1)
+				return -1;
+			int ii = pos + j;
+			if (ii < 0) {
+				if(len<minLen )
+					return -1;
+				length += -ii + 1;
+			} else if (ii >= len) {
+				if(len<minLen )
+					return -1;
+				length += ii - len + 2;
+			} else if (cellLen != null) {
+				length += cellLen[k][ii];
+			} else {
+				length += IncrementalMurmurHash.length(value(data, k, ii));
+			}
+			length++;
+		}
+
+		hash.begin(length);
+		hash.update(id);
+		hash.update((byte) ':');
+		for (int i = 0; i < dims.length; i++) {
+			int ii = pos + dims[i][0];
+			if (ii < 0) {
+				hash.update((byte) 'B', -ii);
+				hash.update((byte) '_');
+			} else if (ii >= len) {
+				hash.update((byte) 'E', ii - len + 1);
+				hash.update((byte) '_');
+			} else {
+				hash.update(value(data, dims[i][1], ii));
+			}
+			hash.update((byte) '/');
+		}
+		return features.lookupIndex(hash.finish(), indent);
+	}
+
+	/**
+	 * 与 {@link #generateHashAt(String[][], int[][], HashFeatureAlphabet, int, int, IncrementalMurmurHash)} 相同，
+	 * 数据直接从原文字符中读取
+	 * @param seq 原文上的序列
+	 * @param cellLen 每个数据单元UTF-8编码的字节数
+	 */
+	int generateHashAt(TextSequence seq, int[][] cellLen,
+			HashFeatureAlphabet features, int pos, int indent, IncrementalMurmurHash hash) {
+		int len = seq.length();
+		if(order>0&& len==1)
+			return -1;
+		int length = IncrementalMurmurHash.length(id) + 1;
+		for (int i = 0; i < dims.length; i++) {
+			int j = dims[i][0];
+			int k = dims[i][1];
+			if(k>seq.rows()-1)
+				return -1;
+			int ii = pos + j;
+			if (ii < 0) {
+				if(len<minLen )
+					return -1;
+				length += -ii + 1;
+			} else if (ii >= len) {
+				if(len<minLen )
+					return -1;
+				length += ii - len + 2;
+			} else {
+				length += cellLen[k][ii];
+			}
+			length++;
+		}
+
+		hash.begin(length);
+		hash.update(id);
+		hash.update((byte) ':');
+		for (int i = 0; i < dims.length; i++) {
+			int ii = pos + dims[i][0];
+			if (ii < 0) {
+				hash.update((byte) 'B', -ii);
+				hash.update((byte) '_');
+			} else if (ii >= len) {
+				hash.update((byte) 'E', ii - len + 1);
+				hash.update((byte) '_');
+			} else if (dims[i][1] == 0) {
+				hash.update(seq.text(), seq.start(ii), seq.end(ii));
+			} else {
+				hash.update((byte) seq.type(ii).name().charAt(0));
+			}
+			hash.update((byte) '/');
+		}
+		return features.lookupIndex(hash.finish(), indent);
+	}
+
+	static String value(String[][] data, int k, int i) {
+		String s = data[k][i];
+		return s == null ? "null" : s;
+	}
+
 	public String toString() {
 		return this.templet;
 	}
@@ -1,7 +1,9 @@
 package edu.fudan.nlp.pipe.seq.templet;
 
 import edu.fudan.ml.types.Instance;
+import edu.fudan.ml.types.alphabet.HashFeatureAlphabet;
 import edu.fudan.ml.types.alphabet.IFeatureAlphabet;
+import edu.fudan.util.hash.IncrementalMurmurHash;
 import edu.fudan.ontology.CharClassDictionary;
 
 /**
@@ -29,6 +31,10 @@ public class CharClassTemplet implements Templet {
 			int... numLabels) {
 		String[][] data = ( String[][]) instance.getData();
 //		int len = data[0].length;
+		if (features instanceof HashFeatureAlphabet
+				&& ((HashFeatureAlphabet) features).isDirectHash())
+			return generateHashAt(data, (HashFeatureAlphabet) features, pos, numLabels[0],
+					TempletPlan.buffers().hash);
 
 		StringBuilder sb = new StringBuilder();
 
@@ -48,6 +54,43 @@ public class CharClassTemplet implements Templet {
 		return index;
 	}
 
+	/**
+	 * 与generateAt相同，但不拼接特征字符串，直接计算其MurmurHash值
+	 */
+	int generateHashAt(String[][] data, HashFeatureAlphabet features, int pos,
+			int indent, IncrementalMurmurHash hash) {
+		return generateHashAt(data[0][pos].charAt(0), features, indent, hash);
+	}
+
+	/**
+	 * 由当前位置的第一个字符直接计算特征
+	 * @param hash 复用的hash计算器
+	 */
+	int generateHashAt(char c, HashFeatureAlphabet features, int indent,
+			IncrementalMurmurHash hash) {
+		int chars = IncrementalMurmurHash.length(id) + 1;
+		int length = chars;
+		for(int i=0;i<dicts.length;i++){
+			if(dicts[i].contains(c)){
+				String name = String.valueOf(dicts[i].name);
+				chars += 1 + name.length();
+				length += 1 + IncrementalMurmurHash.length(name);
+			}
+		}
+		if(chars<3)
+			return -1;
+		hash.begin(length);
+		hash.update(id);
+		hash.update((byte) ':');
+		for(int i=0;i<dicts.length;i++){
+			if(dicts[i].contains(c)){
+				hash.update((byte) '/');
+				hash.update(String.valueOf(dicts[i].name));
+			}
+		}
+		return features.lookupIndex(hash.finish(), indent);
+	}
+
 	@Override
 	public int getOrder() {
 		return 0;
@@ -6,6 +6,9 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.HashMap;
+
+import edu.fudan.ml.types.Instance;
+import edu.fudan.ml.types.alphabet.IFeatureAlphabet;
 /**
  * 序列标注特征模板组，包含不同的特征生成方式
  * @author xpqiu
@@ -43,6 +46,11 @@ public class TempletGroup extends ArrayList<Templet> {
 	 * 不同模板对应状态组合的相对偏移位置
 	 */
 	public int[][] offset;
+
+	/**
+	 * 编译后的执行计划
+	 */
+	private transient TempletPlan plan;
 	
 	public TempletGroup() {
 		super();
@@ -149,6 +157,25 @@ public class TempletGroup extends ArrayList<Templet> {
 		}
 	}
 
+	/**
+	 * 在样本的所有位置上抽取全部模板的特征。
+	 * 模板组第一次使用（或模板、标记个数改变）时编译成执行计划。
+	 * @param instance 样本，数据为String[][]
+	 * @param features 特征词典
+	 * @param numLabels 标记个数
+	 * @return 特征索引，[位置][模板]
+	 * @throws Exception
+	 */
+	public int[][] generate(Instance instance, IFeatureAlphabet features,
+			int numLabels) throws Exception {
+		TempletPlan p = plan;
+		if (p == null || !p.matches(this, numLabels)) {
+			p = new TempletPlan(this, numLabels);
+			plan = p;
+		}
+		return p.generate(instance, features);
+	}
+
 	public int[] getOrders()	{
 		orders = new int[this.size()];
 		for(int i = 0; i < orders.length; i++)	{
@@ -0,0 +1,203 @@
+package edu.fudan.nlp.pipe.seq.templet;
+
+import java.util.Arrays;
+
+import edu.fudan.ml.types.Instance;
+import edu.fudan.ml.types.alphabet.HashFeatureAlphabet;
+import edu.fudan.ml.types.alphabet.IFeatureAlphabet;
+import edu.fudan.nlp.pipe.seq.TextSequence;
+import edu.fudan.util.hash.IncrementalMurmurHash;
+
+/**
+ * 模板组的执行计划。
+ * 编译时确定每个模板的类型和特征间隔，执行时每个句子只计算一次上下文数据的编码长度，
+ * 在一遍扫描中生成所有位置上所有模板的特征。
+ * BaseTemplet和CharClassTemplet在特征词典支持时直接计算hash值，其余模板调用generateAt。
+ * @author xpqiu
+ *
+ */
+final class TempletPlan {
+
+	private static final int GENERIC = 0;
+	private static final int BASE = 1;
+	private static final int CHARCLASS = 2;
+
+	final int numLabels;
+	final Templet[] templets;
+	/**
+	 * 模板类型
+	 */
+	private final int[] kinds;
+	/**
+	 * 特征间隔，numLabels^(order+1)
+	 */
+	private final int[] indents;
+	/**
+	 * 是否包含BaseTemplet
+	 */
+	private final boolean hasBase;
+	/**
+	 * 是否包含只能处理String[][]的模板
+	 */
+	private final boolean hasGeneric;
+
+	/**
+	 * 每个线程复用的hash计算器和编码长度缓冲区
+	 */
+	static final class Buffers {
+		final IncrementalMurmurHash hash = new IncrementalMurmurHash();
+		private int[][] cellLen = new int[0][];
+
+		/**
+		 * 得到至少rows行、每行cols列的编码长度缓冲区，不够时扩大
+		 */
+		int[][] cellLen(int rows, int cols) {
+			if (cellLen.length < rows)
+				cellLen = Arrays.copyOf(cellLen, rows);
+			for (int k = 0; k < rows; k++) {
+				if (cellLen[k] == null || cellLen[k].length < cols)
+					cellLen[k] = new int[Math.max(cols, 32)];
+			}
+			return cellLen;
+		}
+	}
+
+	private static final ThreadLocal<Buffers> BUFFERS = new ThreadLocal<Buffers>() {
+		@Override
+		protected Buffers initialValue() {
+			return new Buffers();
+		}
+	};
+
+	/**
+	 * 当前线程的缓冲区
+	 */
+	static Buffers buffers() {
+		return BUFFERS.get();
+	}
+
+	TempletPlan(TempletGroup group, int numLabels) {
+		this.numLabels = numLabels;
+		int n = group.size();
+		templets = group.toArray(new Templet[n]);
+		kinds = new int[n];
+		indents = new int[n];
+		boolean base = false;
+		boolean generic = false;
+		for (int j = 0; j < n; j++) {
+			Templet t = templets[j];
+			if (t instanceof BaseTemplet) {
+				kinds[j] = BASE;
+				base = true;
+			} else if (t instanceof CharClassTemplet) {
+				kinds[j] = CHARCLASS;
+			} else {
+				kinds[j] = GENERIC;
+				generic = true;
+			}
+			indents[j] = (int) Math.pow(numLabels, t.getOrder() + 1);
+		}
+		hasBase = base;
+		hasGeneric = generic;
+	}
+
+	/**
+	 * 计划是否与当前模板组一致
+	 */
+	boolean matches(TempletGroup group, int numLabels) {
+		if (this.numLabels != numLabels || templets.length != group.size())
+			return false;
+		for (int j = 0; j < templets.length; j++) {
+			if (templets[j] != group.get(j))
+				return false;
+		}
+		return true;
+	}
+
+	int[][] generate(Instance instance, IFeatureAlphabet features)
+			throws Exception {
+		HashFeatureAlphabet direct = null;
+		if (features instanceof HashFeatureAlphabet
+				&& ((HashFeatureAlphabet) features).isDirectHash())
+			direct = (HashFeatureAlphabet) features;
+
+		if (instance.getData() instanceof TextSequence) {
+			TextSequence seq = (TextSequence) instance.getData();
+			if (direct != null && !hasGeneric)
+				return generate(seq, direct);
+			//不能直接处理时转换为String[][]
+			instance.setData(seq.toArrays());
+		}
+
+		String[][] data = (String[][]) instance.getData();
+		int len = data[0].length;
+		int n = templets.length;
+		//特征矩阵成为样本的数据，在样本中保留（如训练集），不能复用
+		int[][] newData = new int[len][n];
+
+		Buffers buf = buffers();
+		int[][] cellLen = null;
+		if (direct != null && hasBase) {
+			int cols = 0;
+			for (int k = 0; k < data.length; k++)
+				cols = Math.max(cols, data[k].length);
+			cellLen = buf.cellLen(data.length, cols);
+			for (int k = 0; k < data.length; k++) {
+				for (int i = 0; i < data[k].length; i++)
+					cellLen[k][i] = IncrementalMurmurHash.length(BaseTemplet.value(data, k, i));
+			}
+		}
+
+		for (int i = 0; i < len; i++) {
+			int[] row = newData[i];
+			for (int j = 0; j < n; j++) {
+				if (direct != null && kinds[j] == BASE) {
+					row[j] = ((BaseTemplet) templets[j]).generateHashAt(data,
+							cellLen, direct, i, indents[j], buf.hash);
+				} else if (direct != null && kinds[j] == CHARCLASS) {
+					row[j] = ((CharClassTemplet) templets[j]).generateHashAt(data,
+							direct, i, indents[j], buf.hash);
+				} else {
+					row[j] = templets[j].generateAt(instance, features, i,
+							numLabels);
+				}
+			}
+		}
+		return newData;
+	}
+
+	/**
+	 * 直接在原文字符上生成特征，所有模板都是BaseTemplet或CharClassTemplet
+	 */
+	private int[][] generate(TextSequence seq, HashFeatureAlphabet features) {
+		int len = seq.length();
+		int n = templets.length;
+		int[][] newData = new int[len][n];
+
+		Buffers buf = buffers();
+		int[][] cellLen = null;
+		if (hasBase) {
+			CharSequence text = seq.text();
+			cellLen = buf.cellLen(seq.rows(), len);
+			for (int i = 0; i < len; i++)
+				cellLen[0][i] = IncrementalMurmurHash.length(text, seq.start(i), seq.end(i));
+			//字符串类型都是1个ASCII字母
+			if (seq.rows() > 1)
+				Arrays.fill(cellLen[1], 0, len, 1);
+		}
+
+		for (int i = 0; i < len; i++) {
+			int[] row = newData[i];
+			for (int j = 0; j < n; j++) {
+				if (kinds[j] == BASE) {
+					row[j] = ((BaseTemplet) templets[j]).generateHashAt(seq,
+							cellLen, features, i, indents[j], buf.hash);
+				} else {
+					row[j] = ((CharClassTemplet) templets[j]).generateHashAt(
+							seq.firstChar(i), features, indents[j], buf.hash);
+				}
+			}
+		}
+		return newData;
+	}
+}
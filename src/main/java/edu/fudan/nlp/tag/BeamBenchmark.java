@@ -0,0 +1,99 @@
+package edu.fudan.nlp.tag;
+
+import edu.fudan.ml.classifier.linear.inf.Inferencer;
+import edu.fudan.ml.classifier.struct.inf.BeamViterbi;
+import edu.fudan.ml.classifier.struct.inf.LinearViterbi;
+import edu.fudan.ml.types.InstanceSet;
+
+/**
+ * 比较精确解码和不同beam宽度的剪枝解码（见 {@link BeamViterbi}）的速度和准确率。
+ * 测试：java edu.fudan.nlp.tag.BeamBenchmark model_file test_file [beam ...]
+ * @author xpqiu
+ *
+ */
+public class BeamBenchmark {
+
+	private static final int[] DEFAULT_BEAMS = { 1, 2, 4, 8, 16 };
+
+	/**
+	 * 解码测试集一遍，不重建转移矩阵
+	 */
+	private static int[][] decode(InstanceSet testSet) {
+		int[][] pred = new int[testSet.size()][];
+		for (int i = 0; i < testSet.size(); i++)
+			pred[i] = (int[]) ModelIO.cl.classify(testSet.get(i)).getLabel(0);
+		return pred;
+	}
+
+	/**
+	 * 预热若干遍后解码测试集若干遍，只对解码计时，返回最后一遍的结果
+	 */
+	private static int[][] run(InstanceSet testSet, int warmup, int rounds, long[] time) {
+		int[][] pred = null;
+		for (int r = 0; r < warmup; r++)
+			pred = decode(testSet);
+		long start = System.nanoTime();
+		for (int r = 0; r < rounds; r++)
+			pred = decode(testSet);
+		time[0] = (System.nanoTime() - start) / rounds;
+		return pred;
+	}
+
+	private static double agreement(int[][] a, int[][] b) {
+		int len = 0;
+		int same = 0;
+		for (int i = 0; i < a.length; i++) {
+			for (int j = 0; j < a[i].length; j++) {
+				if (a[i][j] == b[i][j])
+					same++;
+			}
+			len += a[i].length;
+		}
+		return len == 0 ? 0 : (double) same / len;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: BeamBenchmark model_file test_file [beam ...]");
+			return;
+		}
+		ModelIO.loadFrom(args[0]);
+		ModelIO.cl.getAlphabetFactory().setStopIncrement(true);
+		Inferencer inf = ModelIO.cl.getInferencer();
+		if (!(inf instanceof LinearViterbi)) {
+			System.err.println("Not a first order model: " + inf.getClass().getName());
+			return;
+		}
+		LinearViterbi exact = (LinearViterbi) inf;
+		int[] beams = DEFAULT_BEAMS;
+		if (args.length > 2) {
+			beams = new int[args.length - 2];
+			for (int i = 0; i < beams.length; i++)
+				beams[i] = Integer.parseInt(args[i + 2]);
+		}
+
+		InstanceSet testSet = ModelIO.loadTest(args[1]);
+		System.out.println("Test Number: " + testSet.size());
+		System.out.println("Label Number: " + exact.ysize());
+		int warmup = 10;
+		int rounds = 50;
+		long[] time = new long[1];
+
+		//转移矩阵只在计时前计算一次，剪枝解码器构造时直接复用
+		exact.buildConstTransition(ModelIO.cl.getAlphabetFactory().DefaultFeatureAlphabet());
+		int[][] base = run(testSet, warmup, rounds, time);
+		long baseTime = time[0];
+		System.out.println("beam\ttime(ms)\tspeedup\taccuracy\tagreement");
+		System.out.printf("exact\t%.1f\t1.00\t%.4f\t1.0000%n", baseTime / 1e6,
+				QuantizeModel.accuracy(testSet, base));
+
+		for (int beam : beams) {
+			ModelIO.cl.setInferencer(new BeamViterbi(exact, beam));
+			int[][] pred = run(testSet, warmup, rounds, time);
+			System.out.printf("%d\t%.1f\t%.2f\t%.4f\t%.4f%n", beam, time[0] / 1e6,
+					(double) baseTime / time[0],
+					QuantizeModel.accuracy(testSet, pred), agreement(base, pred));
+		}
+		ModelIO.cl.setInferencer(exact);
+	}
+}
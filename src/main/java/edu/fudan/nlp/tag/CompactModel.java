@@ -0,0 +1,60 @@
+package edu.fudan.nlp.tag;
+
+import java.io.File;
+import java.util.Arrays;
+
+import edu.fudan.ml.classifier.linear.MappedModel;
+import edu.fudan.ml.types.InstanceSet;
+import edu.fudan.ml.types.alphabet.IFeatureAlphabet;
+
+/**
+ * 压缩模型：删除权重全为0的特征并重新编号（见 {@link edu.fudan.ml.classifier.linear.Linear#compact()}），
+ * 按原格式保存，并输出压缩前后的大小。给出测试文件时检查压缩前后解码结果是否完全相同。
+ * 测试：java edu.fudan.nlp.tag.CompactModel model_file new_model_file [test_file]
+ * @author xpqiu
+ *
+ */
+public class CompactModel {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: CompactModel model_file new_model_file [test_file]");
+			return;
+		}
+		boolean mapped = MappedModel.isMapped(args[0]);
+		ModelIO.loadFrom(args[0]);
+		ModelIO.cl.getAlphabetFactory().setStopIncrement(true);
+
+		int[][] before = null;
+		if (args.length > 2) {
+			InstanceSet testSet = ModelIO.loadTest(args[2]);
+			System.out.println("Test Number: " + testSet.size());
+			before = ModelIO.predict(testSet);
+		}
+
+		IFeatureAlphabet features = ModelIO.cl.getAlphabetFactory().DefaultFeatureAlphabet();
+		int fsize = features.keysize();
+		int wsize = ModelIO.cl.getWeights().length;
+		int removed = ModelIO.cl.compact();
+		System.out.println("Feature Number: " + fsize + " -> " + (fsize - removed));
+		System.out.println("Weight Number: " + wsize + " -> "
+				+ ModelIO.cl.getWeights().length);
+
+		ModelIO.saveTo(args[1], mapped);
+		System.out.println("Model Size: " + new File(args[0]).length() + " -> "
+				+ new File(args[1]).length() + " bytes");
+
+		if (before != null) {
+			//特征索引已改变，需要重新抽取特征
+			InstanceSet testSet = ModelIO.loadTest(args[2]);
+			int[][] after = ModelIO.predict(testSet);
+			int diff = 0;
+			for (int i = 0; i < before.length; i++) {
+				if (!Arrays.equals(before[i], after[i]))
+					diff++;
+			}
+			System.out.println(diff == 0 ? "Identical Output"
+					: "Different Output: " + diff + " / " + before.length);
+		}
+	}
+}
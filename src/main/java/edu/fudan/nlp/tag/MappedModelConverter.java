@@ -0,0 +1,60 @@
+package edu.fudan.nlp.tag;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.zip.GZIPInputStream;
+
+import edu.fudan.ml.classifier.linear.Linear;
+import edu.fudan.ml.classifier.linear.MappedModel;
+import edu.fudan.nlp.pipe.seq.templet.TempletGroup;
+
+/**
+ * 将gzip压缩的序列化模型（.m）转为内存映射格式，见 {@link MappedModel}。
+ * 支持序列标注模型（模板+分类器，如seg.m、pos.m）和单独的分类器模型（如dep.m）。
+ * 转换后的文件可以直接替换原模型文件使用。
+ * @author xpqiu
+ *
+ */
+public class MappedModelConverter {
+
+	/**
+	 * 转换模型
+	 * @param from 原模型文件
+	 * @param to 映射格式模型文件
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public static void convert(String from, String to) throws IOException,
+			ClassNotFoundException {
+		ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+				new GZIPInputStream(new FileInputStream(from))));
+		TempletGroup templets = null;
+		Linear cl;
+		Object obj = in.readObject();
+		if (obj instanceof TempletGroup) {
+			templets = (TempletGroup) obj;
+			cl = (Linear) in.readObject();
+		} else {
+			cl = (Linear) obj;
+		}
+		in.close();
+		cl.getAlphabetFactory().setStopIncrement(true);
+		MappedModel.saveTo(to, templets, cl);
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length != 2) {
+			System.err.println("Usage: MappedModelConverter from.m to.m");
+			return;
+		}
+		long t = System.currentTimeMillis();
+		convert(args[0], args[1]);
+		System.out.println("Converted " + args[0] + " ("
+				+ new File(args[0]).length() + " bytes) to " + args[1] + " ("
+				+ new File(args[1]).length() + " bytes) in "
+				+ (System.currentTimeMillis() - t) + " ms");
+	}
+}
@@ -10,33 +10,119 @@ import java.io.ObjectOutputStream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
+import edu.fudan.data.reader.SequenceReader;
 import edu.fudan.ml.classifier.linear.Linear;
+import edu.fudan.ml.classifier.linear.MappedModel;
+import edu.fudan.ml.classifier.linear.inf.Inferencer;
+import edu.fudan.ml.classifier.struct.inf.LinearViterbi;
+import edu.fudan.ml.types.InstanceSet;
+import edu.fudan.ml.types.alphabet.IFeatureAlphabet;
+import edu.fudan.ml.types.alphabet.LabelAlphabet;
+import edu.fudan.nlp.pipe.Pipe;
+import edu.fudan.nlp.pipe.SeriesPipes;
+import edu.fudan.nlp.pipe.Target2Label;
+import edu.fudan.nlp.pipe.seq.Sequence2FeatureSequence;
 import edu.fudan.nlp.pipe.seq.templet.TempletGroup;
 /**
  * 统一处理序列标注模型的读写操作
  * @author xpqiu
  */
 public class ModelIO {
-	
+
 	public static TempletGroup templets;
 	public static Linear cl;
 
+	/**
+	 * 保存为gzip压缩的序列化格式
+	 * @param modelfile 模型文件
+	 * @param templets 模板，为null时只保存分类器
+	 * @param cl 分类器
+	 * @throws IOException
+	 */
 	public static void saveTo(String modelfile, TempletGroup templets, Linear cl) throws IOException {
 		ObjectOutputStream out = new ObjectOutputStream(
 				new BufferedOutputStream(new GZIPOutputStream(
 						new FileOutputStream(modelfile))));
-		out.writeObject(templets);
+		if (templets != null)
+			out.writeObject(templets);
 		out.writeObject(cl);
 		out.close();
 	}
 
+	/**
+	 * 读入模型，支持gzip压缩的序列化格式和内存映射格式（见 {@link MappedModel}），
+	 * 只包含分类器的模型（如句法分析模型）读入后templets为null
+	 * @param modelfile 模型文件
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
 	public static void loadFrom(String modelfile) throws IOException,
 	ClassNotFoundException {
+		if (MappedModel.isMapped(modelfile)) {
+			MappedModel model = MappedModel.loadFrom(modelfile);
+			templets = (TempletGroup) model.getHeader();
+			cl = model.getClassifier();
+			return;
+		}
 		ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
 				new GZIPInputStream(new FileInputStream(modelfile))));
-		templets = (TempletGroup) in.readObject();
-		cl = (Linear) in.readObject();
+		Object obj = in.readObject();
+		if (obj instanceof TempletGroup) {
+			templets = (TempletGroup) obj;
+			cl = (Linear) in.readObject();
+		} else {
+			templets = null;
+			cl = (Linear) obj;
+		}
 		in.close();
 	}
-	
+
+	/**
+	 * 按原文件的格式保存当前模型
+	 * @param modelfile 模型文件
+	 * @param mapped 是否为内存映射格式
+	 * @throws IOException
+	 */
+	public static void saveTo(String modelfile, boolean mapped) throws IOException {
+		if (mapped)
+			MappedModel.saveTo(modelfile, templets, cl);
+		else
+			saveTo(modelfile, templets, cl);
+	}
+
+	/**
+	 * 用当前模型读入有标注的测试文件，格式同 {@link Tagger}
+	 * @param testfile 测试文件
+	 * @return 测试集
+	 * @throws Exception
+	 */
+	public static InstanceSet loadTest(String testfile) throws Exception {
+		if (templets == null)
+			throw new IllegalStateException("Not a sequence labeling model.");
+		LabelAlphabet labels = cl.getAlphabetFactory().DefaultLabelAlphabet();
+		IFeatureAlphabet features = cl.getAlphabetFactory().DefaultFeatureAlphabet();
+		features.setStopIncrement(true);
+		Pipe pipe = new SeriesPipes(new Pipe[] { new Target2Label(labels),
+				new Sequence2FeatureSequence(templets, features, labels) });
+		InstanceSet testSet = new InstanceSet(pipe);
+		testSet.loadThruStagePipes(new SequenceReader(testfile, true, "utf8"));
+		return testSet;
+	}
+
+	/**
+	 * 用当前模型解码测试集
+	 * @param testSet 测试集
+	 * @return 每个样本的预测
+	 */
+	public static int[][] predict(InstanceSet testSet) {
+		Inferencer inf = cl.getInferencer();
+		if (inf instanceof LinearViterbi)
+			((LinearViterbi) inf).buildConstTransition(
+					cl.getAlphabetFactory().DefaultFeatureAlphabet());
+		int[][] pred = new int[testSet.size()][];
+		for (int i = 0; i < testSet.size(); i++)
+			pred[i] = (int[]) cl.classify(testSet.get(i)).getLabel(0);
+		return pred;
+	}
+
 }
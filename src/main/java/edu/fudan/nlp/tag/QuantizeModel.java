@@ -0,0 +1,97 @@
+package edu.fudan.nlp.tag;
+
+import java.io.File;
+
+import edu.fudan.ml.classifier.linear.MappedModel;
+import edu.fudan.ml.classifier.linear.inf.Inferencer;
+import edu.fudan.ml.types.Instance;
+import edu.fudan.ml.types.InstanceSet;
+import edu.fudan.ml.types.sv.QuantizedWeightVector;
+
+/**
+ * 将模型权重量化为8位（见 {@link QuantizedWeightVector}），保存为内存映射格式，
+ * 并在有标注的测试文件上比较量化前后的准确率。
+ * 测试：java edu.fudan.nlp.tag.QuantizeModel model_file new_model_file [test_file]
+ * @author xpqiu
+ *
+ */
+public class QuantizeModel {
+
+	/**
+	 * 量化当前模型的权重
+	 * @return 权重的最大绝对误差
+	 */
+	public static float quantize() {
+		Inferencer inf = ModelIO.cl.getInferencer();
+		float[] w = inf.getWeights();
+		QuantizedWeightVector q = QuantizedWeightVector.quantize(w);
+		float maxError = 0;
+		for (int i = 0; i < w.length; i++)
+			maxError = Math.max(maxError, Math.abs(w[i] - q.get(i)));
+		System.out.println("Weight Number: " + w.length);
+		System.out.println("Weight Size: " + 4L * w.length + " -> " + q.byteSize()
+				+ " bytes");
+		System.out.println("Max Error: " + maxError);
+		inf.setWeights(q);
+		return maxError;
+	}
+
+	/**
+	 * 标签准确率
+	 */
+	public static double accuracy(InstanceSet testSet, int[][] pred) {
+		int len = 0;
+		int right = 0;
+		for (int i = 0; i < testSet.size(); i++) {
+			Instance carrier = testSet.get(i);
+			int[] target = (int[]) carrier.getTarget();
+			for (int j = 0; j < target.length; j++) {
+				if (target[j] == pred[i][j])
+					right++;
+			}
+			len += target.length;
+		}
+		return len == 0 ? 0 : (double) right / len;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: QuantizeModel model_file new_model_file [test_file]");
+			return;
+		}
+		ModelIO.loadFrom(args[0]);
+		ModelIO.cl.getAlphabetFactory().setStopIncrement(true);
+
+		InstanceSet testSet = null;
+		int[][] before = null;
+		if (args.length > 2) {
+			testSet = ModelIO.loadTest(args[2]);
+			System.out.println("Test Number: " + testSet.size());
+			before = ModelIO.predict(testSet);
+		}
+
+		quantize();
+
+		if (testSet != null) {
+			int[][] after = ModelIO.predict(testSet);
+			int len = 0;
+			int changed = 0;
+			for (int i = 0; i < before.length; i++) {
+				for (int j = 0; j < before[i].length; j++) {
+					if (before[i][j] != after[i][j])
+						changed++;
+				}
+				len += before[i].length;
+			}
+			double a0 = accuracy(testSet, before);
+			double a1 = accuracy(testSet, after);
+			System.out.println("Test Accuracy:\t" + a0 + " -> " + a1
+					+ " (" + (a1 - a0) + ")");
+			System.out.println("Changed Labels:\t" + changed + " / " + len);
+		}
+
+		MappedModel.saveTo(args[1], ModelIO.templets, ModelIO.cl);
+		System.out.println("Model Size: " + new File(args[0]).length() + " -> "
+				+ new File(args[1]).length() + " bytes");
+	}
+}
@@ -0,0 +1,236 @@
+package edu.fudan.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 双数组Trie树，建立后只读，可以被多个线程同时查询。
+ * 从状态s经过字符c转移到 t=base[s]+c+1，当且仅当 check[t]==base[s]；
+ * 词的结束用编码0的转移表示，结束节点的base保存词的编号(-id-1)。
+ * 查询时逐字符转移，不生成子串。
+ * @author xpqiu
+ *
+ */
+public final class DoubleArrayTrie {
+
+	/**
+	 * 在已用区域中尝试的最多位置数
+	 */
+	private static final int MAX_TRIES = 64;
+
+	private int[] base;
+	private int[] check;
+	private boolean[] used;
+	private int nextCheckPos;
+	private int size;
+	private int numWords;
+
+	private String[] keys;
+
+	/**
+	 * 由词的集合建立Trie树，词的编号为排序后的序号，空串被忽略
+	 * @param words 词的集合
+	 */
+	public DoubleArrayTrie(Collection<String> words) {
+		String[] ks = new String[words.size()];
+		int n = 0;
+		for (String w : words) {
+			if (w != null && w.length() > 0)
+				ks[n++] = w;
+		}
+		ks = Arrays.copyOf(ks, n);
+		Arrays.sort(ks);
+		//去重
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			if (m == 0 || !ks[i].equals(ks[m - 1]))
+				ks[m++] = ks[i];
+		}
+		keys = Arrays.copyOf(ks, m);
+		numWords = m;
+
+		resize(Math.max(1024, 4 * m));
+		base[0] = 1;
+		if (m > 0) {
+			int b = insert(fetch(0, m, 0));
+			base[0] = b;
+		}
+		keys = null;
+		used = null;
+		//保证任意状态经任意字符转移时不越界
+		int len = Math.max(size, 2) + 0x10001;
+		base = Arrays.copyOf(base, len);
+		check = Arrays.copyOf(check, len);
+	}
+
+	/**
+	 * 初始状态
+	 */
+	public int root() {
+		return 0;
+	}
+
+	/**
+	 * 状态转移
+	 * @param state 当前状态
+	 * @param c 字符
+	 * @return 下一状态，不存在时返回-1
+	 */
+	public int next(int state, char c) {
+		int b = base[state];
+		int p = b + c + 1;
+		if (check[p] == b)
+			return p;
+		return -1;
+	}
+
+	/**
+	 * 当前状态是否为词的结束
+	 * @param state 状态
+	 * @return 词的编号，不是词时返回-1
+	 */
+	public int value(int state) {
+		int b = base[state];
+		if (check[b] == b && base[b] < 0)
+			return -base[b] - 1;
+		return -1;
+	}
+
+	/**
+	 * 查找词
+	 * @param s 字符串
+	 * @return 词的编号，不存在时返回-1
+	 */
+	public int get(CharSequence s) {
+		return get(s, 0, s.length());
+	}
+
+	/**
+	 * 查找字符串中[start,end)一段
+	 * @return 词的编号，不存在时返回-1
+	 */
+	public int get(CharSequence s, int start, int end) {
+		int state = root();
+		for (int i = start; i < end; i++) {
+			state = next(state, s.charAt(i));
+			if (state < 0)
+				return -1;
+		}
+		return value(state);
+	}
+
+	/**
+	 * 词的个数
+	 */
+	public int size() {
+		return numWords;
+	}
+
+	/**
+	 * 数组长度，用于估计占用的空间
+	 */
+	public int arraySize() {
+		return base.length;
+	}
+
+	private static final class Node {
+		int code;
+		int depth;
+		int left;
+		int right;
+
+		Node(int code, int depth, int left) {
+			this.code = code;
+			this.depth = depth;
+			this.left = left;
+		}
+	}
+
+	/**
+	 * 得到keys[left,right)在深度depth上的子节点，编码0表示词的结束
+	 */
+	private List<Node> fetch(int left, int right, int depth) {
+		List<Node> children = new ArrayList<Node>();
+		Node prev = null;
+		for (int i = left; i < right; i++) {
+			String k = keys[i];
+			int code = k.length() == depth ? 0 : k.charAt(depth) + 1;
+			if (prev == null || prev.code != code) {
+				if (prev != null)
+					prev.right = i;
+				prev = new Node(code, depth + 1, i);
+				children.add(prev);
+			}
+		}
+		if (prev != null)
+			prev.right = right;
+		return children;
+	}
+
+	/**
+	 * 为一组子节点找到可用的base并递归插入
+	 * @return base
+	 */
+	private int insert(List<Node> children) {
+		int first = children.get(0).code;
+		int last = children.get(children.size() - 1).code;
+		int pos = Math.max(first + 1, nextCheckPos) - 1;
+		int nonzero = 0;
+		int tries = 0;
+		boolean isFirst = true;
+		int begin;
+		outer: while (true) {
+			pos++;
+			if (tries > MAX_TRIES && pos < size) {
+				//已用区域碎片太多，直接放到已用区域之后
+				pos = size;
+			}
+			if (pos >= check.length)
+				resize(pos + 1);
+			if (check[pos] != 0) {
+				nonzero++;
+				continue;
+			} else if (isFirst) {
+				nextCheckPos = pos;
+				isFirst = false;
+			}
+			begin = pos - first;
+			if (begin + last >= check.length)
+				resize(begin + last + 1);
+			if (used[begin])
+				continue;
+			tries++;
+			for (int i = 1; i < children.size(); i++) {
+				if (check[begin + children.get(i).code] != 0)
+					continue outer;
+			}
+			break;
+		}
+		//可用位置很少时，下次从当前位置开始找
+		if (1.0 * nonzero / (pos - nextCheckPos + 1) >= 0.95)
+			nextCheckPos = pos;
+		used[begin] = true;
+		size = Math.max(size, begin + last + 1);
+		for (Node c : children)
+			check[begin + c.code] = begin;
+		for (Node c : children) {
+			if (c.code == 0) {
+				base[begin] = -c.left - 1;
+			} else {
+				//insert可能扩容，不能写成base[...] = insert(...)
+				int b = insert(fetch(c.left, c.right, c.depth));
+				base[begin + c.code] = b;
+			}
+		}
+		return begin;
+	}
+
+	private void resize(int n) {
+		int cap = base == null ? n : Math.max(n, base.length + base.length / 2);
+		base = base == null ? new int[cap] : Arrays.copyOf(base, cap);
+		check = check == null ? new int[cap] : Arrays.copyOf(check, cap);
+		used = used == null ? new boolean[cap] : Arrays.copyOf(used, cap);
+	}
+}
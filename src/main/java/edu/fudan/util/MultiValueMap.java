@@ -18,6 +18,18 @@ public class MultiValueMap<K, V> implements Map<K, V> {
 		map = new TreeMap<K, TreeSet<V>>();
 	}
 
+	/**
+	 * 复制构造函数，值的集合也被复制，修改新对象不影响原对象
+	 * @param m
+	 */
+	public MultiValueMap(MultiValueMap<K, V> m) {
+		map = new TreeMap<K, TreeSet<V>>(m.map);
+		for (Entry<K, TreeSet<V>> e : map.entrySet()) {
+			if (e.getValue() != null)
+				e.setValue(new TreeSet<V>(e.getValue()));
+		}
+	}
+
 	@Override
 	public int size() {
 		
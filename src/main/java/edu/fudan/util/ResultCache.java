@@ -0,0 +1,265 @@
+package edu.fudan.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 线程安全、有容量上限的结果缓存。
+ * 按键的hash分成若干段，每段是按访问顺序排列的LinkedHashMap，由各自的锁保护。
+ * 每个结果记录生成它时的版本号（如词典版本），版本不同的结果视为不存在。
+ *
+ * 淘汰策略：
+ * LRU 容量满时淘汰最久没有访问的结果；
+ * TINY_LFU 另用计数草图（count-min sketch）估计每个键最近的访问频率，
+ * 容量满时只有新键的频率高于将被淘汰的键才放入，避免只出现一次的句子冲掉常用句子。
+ * @author xpqiu
+ *
+ */
+public class ResultCache<K, V> {
+
+	/**
+	 * 淘汰策略
+	 */
+	public enum Policy {
+		LRU, TINY_LFU
+	}
+
+	private static final class Entry<V> {
+		final long version;
+		final V value;
+
+		Entry(long version, V value) {
+			this.version = version;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * 4行4位计数器的频率草图，计数总数达到阈值后全部减半，使频率反映最近的访问
+	 */
+	private static final class FrequencySketch {
+		private static final int[] SEEDS = { 0x9e3779b9, 0x85ebca6b, 0xc2b2ae35, 0x27d4eb2f };
+		private final byte[] table;
+		private final int mask;
+		private final int sampleSize;
+		private int additions;
+
+		FrequencySketch(int capacity) {
+			int n = 16;
+			while (n < capacity)
+				n <<= 1;
+			table = new byte[n * SEEDS.length];
+			mask = n - 1;
+			sampleSize = 10 * Math.max(capacity, 1);
+		}
+
+		private int index(int hash, int i) {
+			int h = hash * SEEDS[i];
+			h ^= h >>> 16;
+			return i * (mask + 1) + (h & mask);
+		}
+
+		void increment(int hash) {
+			boolean added = false;
+			for (int i = 0; i < SEEDS.length; i++) {
+				int j = index(hash, i);
+				if (table[j] < 15) {
+					table[j]++;
+					added = true;
+				}
+			}
+			if (added && ++additions >= sampleSize) {
+				for (int i = 0; i < table.length; i++)
+					table[i] >>= 1;
+				additions /= 2;
+			}
+		}
+
+		int frequency(int hash) {
+			int f = 15;
+			for (int i = 0; i < SEEDS.length; i++)
+				f = Math.min(f, table[index(hash, i)]);
+			return f;
+		}
+	}
+
+	private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+		private static final long serialVersionUID = 6453729402816455105L;
+		final int capacity;
+		final FrequencySketch sketch;
+
+		Segment(int capacity, boolean lfu) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+			this.sketch = lfu ? new FrequencySketch(capacity) : null;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+			return sketch == null && size() > capacity;
+		}
+	}
+
+	private final Segment<K, V>[] segments;
+	private final Policy policy;
+	private final int capacity;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param capacity 最多保存的结果数
+	 */
+	public ResultCache(int capacity) {
+		this(capacity, Policy.LRU);
+	}
+
+	/**
+	 * @param capacity 最多保存的结果数
+	 * @param policy 淘汰策略
+	 */
+	@SuppressWarnings("unchecked")
+	public ResultCache(int capacity, Policy policy) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		this.capacity = capacity;
+		this.policy = policy;
+		//每段至少128个结果
+		int n = 1;
+		while (n < 16 && n * 128 <= capacity)
+			n <<= 1;
+		segments = new Segment[n];
+		for (int i = 0; i < n; i++) {
+			int c = capacity / n + (i < capacity % n ? 1 : 0);
+			segments[i] = new Segment<K, V>(c, policy == Policy.TINY_LFU);
+		}
+	}
+
+	private static int hash(Object key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private Segment<K, V> segmentFor(int h) {
+		return segments[(h * 0x9e3779b9 >>> 16) & (segments.length - 1)];
+	}
+
+	/**
+	 * 查找结果
+	 * @param key 键
+	 * @param version 当前版本
+	 * @return 结果，不存在或版本不同时返回null
+	 */
+	public V get(K key, long version) {
+		int h = hash(key);
+		Segment<K, V> seg = segmentFor(h);
+		Entry<V> e;
+		synchronized (seg) {
+			if (seg.sketch != null)
+				seg.sketch.increment(h);
+			e = seg.get(key);
+			if (e != null && e.version != version) {
+				seg.remove(key);
+				e = null;
+			}
+		}
+		if (e == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return e.value;
+	}
+
+	/**
+	 * 保存结果
+	 * @param key 键
+	 * @param version 生成结果时的版本
+	 * @param value 结果
+	 */
+	public void put(K key, long version, V value) {
+		int h = hash(key);
+		Segment<K, V> seg = segmentFor(h);
+		synchronized (seg) {
+			if (seg.sketch != null && seg.size() >= seg.capacity && !seg.containsKey(key)) {
+				Iterator<Map.Entry<K, Entry<V>>> it = seg.entrySet().iterator();
+				K victim = it.next().getKey();
+				if (seg.sketch.frequency(h) <= seg.sketch.frequency(hash(victim)))
+					return;
+				it.remove();
+			}
+			seg.put(key, new Entry<V>(version, value));
+		}
+	}
+
+	/**
+	 * 清空缓存，计数不变
+	 */
+	public void clear() {
+		for (Segment<K, V> seg : segments) {
+			synchronized (seg) {
+				seg.clear();
+			}
+		}
+	}
+
+	/**
+	 * 当前保存的结果数
+	 */
+	public int size() {
+		int n = 0;
+		for (Segment<K, V> seg : segments) {
+			synchronized (seg) {
+				n += seg.size();
+			}
+		}
+		return n;
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public Policy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * 命中次数
+	 */
+	public long hitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * 未命中次数
+	 */
+	public long missCount() {
+		return misses.get();
+	}
+
+	/**
+	 * 命中率
+	 */
+	public double hitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	/**
+	 * 计数清零
+	 */
+	public void resetStats() {
+		hits.set(0);
+		misses.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return "ResultCache[" + policy + ", size=" + size() + "/" + capacity
+				+ ", hits=" + hitCount() + ", misses=" + missCount() + "]";
+	}
+}
@@ -0,0 +1,198 @@
+package edu.fudan.util.hash;
+
+import java.nio.charset.Charset;
+
+/**
+ * 增量计算的 murmur hash 2.0，与 {@link MurmurHash#hashcode(String)} 结果一致，
+ * 但不需要先拼接字符串再编码成字节数组。
+ *
+ * murmur hash 的初始值依赖于总字节数，因此使用时先计算总长度（UTF-8编码），
+ * 调用 {@link #begin(int)}，再依次调用 update 方法，最后调用 {@link #finish()}。
+ *
+ * 只有平台缺省编码为 UTF-8 时才与 {@link String#getBytes()} 一致，
+ * 参见 {@link #isCompatible()}。
+ *
+ * @author xpqiu
+ *
+ */
+public final class IncrementalMurmurHash {
+
+    private static final int M = 0x5bd1e995;
+    private static final int R = 24;
+    private static final int SEED = 0x9747b28c;
+
+    private static final boolean compatible = "UTF-8".equals(Charset.defaultCharset().name());
+
+    private int h;
+    /**
+     * 尚未凑满4个字节的数据
+     */
+    private int buf;
+    private int nbuf;
+
+    /**
+     * 平台缺省编码是否为UTF-8，否则结果与 {@link MurmurHash#hashcode(String)} 不一致
+     */
+    public static boolean isCompatible() {
+        return compatible;
+    }
+
+    /**
+     * 开始计算
+     * @param length 总字节数
+     * @return this
+     */
+    public IncrementalMurmurHash begin(int length) {
+        h = SEED ^ length;
+        buf = 0;
+        nbuf = 0;
+        return this;
+    }
+
+    /**
+     * 加入一个字节
+     */
+    public void update(byte b) {
+        buf |= (b & 0xff) << (nbuf << 3);
+        if (++nbuf == 4) {
+            int k = buf;
+            k *= M;
+            k ^= k >>> R;
+            k *= M;
+            h *= M;
+            h ^= k;
+            buf = 0;
+            nbuf = 0;
+        }
+    }
+
+    /**
+     * 加入n个相同的字节
+     */
+    public void update(byte b, int n) {
+        for (int i = 0; i < n; i++)
+            update(b);
+    }
+
+    /**
+     * 加入整数的十进制表示
+     */
+    public void update(int v) {
+        if (v < 0) {
+            update((byte) '-');
+            if (v == Integer.MIN_VALUE) {
+                update((byte) '2');
+                v = 147483648;
+            } else {
+                v = -v;
+            }
+        }
+        int div = 1;
+        while (v / div >= 10)
+            div *= 10;
+        for (; div > 0; div /= 10)
+            update((byte) ('0' + (v / div) % 10));
+    }
+
+    /**
+     * 加入字符串的UTF-8编码
+     */
+    public void update(CharSequence s) {
+        update(s, 0, s.length());
+    }
+
+    /**
+     * 加入字符串中[start,end)一段的UTF-8编码，与加入 s.subSequence(start, end) 相同
+     */
+    public void update(CharSequence s, int start, int end) {
+        int n = end;
+        for (int i = start; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                update((byte) c);
+            } else if (c < 0x800) {
+                update((byte) (0xc0 | (c >> 6)));
+                update((byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                update((byte) (0xf0 | (cp >> 18)));
+                update((byte) (0x80 | ((cp >> 12) & 0x3f)));
+                update((byte) (0x80 | ((cp >> 6) & 0x3f)));
+                update((byte) (0x80 | (cp & 0x3f)));
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                //不成对的代理字符编码为'?'
+                update((byte) '?');
+            } else {
+                update((byte) (0xe0 | (c >> 12)));
+                update((byte) (0x80 | ((c >> 6) & 0x3f)));
+                update((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+    }
+
+    /**
+     * 结束计算
+     * @return 32位hash值
+     */
+    public int finish() {
+        if (nbuf > 0) {
+            h ^= buf;
+            h *= M;
+        }
+        h ^= h >>> 13;
+        h *= M;
+        h ^= h >>> 15;
+        return h;
+    }
+
+    /**
+     * 整数十进制表示的字节数
+     */
+    public static int length(int v) {
+        int len = 1;
+        if (v < 0) {
+            if (v == Integer.MIN_VALUE)
+                return 11;
+            len++;
+            v = -v;
+        }
+        while (v >= 10) {
+            v /= 10;
+            len++;
+        }
+        return len;
+    }
+
+    /**
+     * 字符串UTF-8编码的字节数
+     */
+    public static int length(CharSequence s) {
+        return length(s, 0, s.length());
+    }
+
+    /**
+     * 字符串中[start,end)一段UTF-8编码的字节数
+     */
+    public static int length(CharSequence s, int start, int end) {
+        int n = end;
+        int len = 0;
+        for (int i = start; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                len += 1;
+            } else if (c < 0x800) {
+                len += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                len += 4;
+                i++;
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                len += 1;
+            } else {
+                len += 3;
+            }
+        }
+        return len;
+    }
+}
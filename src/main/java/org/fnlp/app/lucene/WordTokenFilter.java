@@ -2,9 +2,6 @@ package org.fnlp.app.lucene;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Iterator;
-import java.util.List;
 
 import edu.fudan.nlp.corpus.StopWords;
 import org.apache.lucene.analysis.TokenFilter;
@@ -19,11 +16,13 @@ import edu.fudan.nlp.cn.tag.POSTagger;
 
 public final class WordTokenFilter extends TokenFilter {
 
-	private Iterator<String> tokenIter;
-	private List<String> tokenBuffer;
-	
-	private Iterator<String> posIter;
-	private List<String> posBuffer;
+	/**
+	 * 当前句子的文本、词的起止位置和词性
+	 */
+	private String text;
+	private int[] spans;
+	private String[] poses;
+	private int next;
 
 	private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
 	private final POSAttribute posAtt = addAttribute(POSAttribute.class);
@@ -34,7 +33,6 @@ public final class WordTokenFilter extends TokenFilter {
 	private int tokStart; // only used if the length changed before this filter
 	private int tokEnd; // only used if the length changed before this filter
 	private boolean hasIllegalOffsets; // only if the length changed before this filter
-	private int idx=0;
 
 	private CNFactory factory;
 
@@ -56,7 +54,7 @@ public final class WordTokenFilter extends TokenFilter {
 	public boolean incrementToken() throws IOException {
 		// WordTokenFilter must clear attributes, as it is creating new tokens.
 		clearAttributes();
-		if (tokenIter == null || !tokenIter.hasNext()) {
+		if (spans == null || next >= spans.length) {
 			// there are no remaining tokens from the current sentence... are there more sentences?
 			if (input.incrementToken()) {
 				tokStart = offsetAtt.startOffset();
@@ -65,21 +63,16 @@ public final class WordTokenFilter extends TokenFilter {
 				// this is a synonym and don't adjust the offsets.
 				hasIllegalOffsets = (tokStart + termAtt.length()) != tokEnd;
 				// a new sentence is available: process it.
-				String[] w = factory.seg(termAtt.toString());
-				String[] p = factory.tag(w);
-				tokenBuffer = Arrays.asList(w);
-				if(null != p) {
-					posBuffer = Arrays.asList(p);
-					posIter = posBuffer.iterator();
-				}
-				tokenIter = tokenBuffer.iterator();
-
-				idx = 0;
+				// 只得到词的起止位置，不生成词的字符串
+				text = termAtt.toString();
+				spans = factory.segOffsets(text);
+				poses = spans == null ? null : factory.tagOffsets(text, spans);
+				next = 0;
 				/* 
 				 * it should not be possible to have a sentence with 0 words, check just in case.
 				 * returning EOS isn't the best either, but its the behavior of the original code.
 				 */
-				if (!tokenIter.hasNext()) {
+				if (spans == null || spans.length == 0) {
 					return false;
 				}
 			} else {
@@ -88,28 +81,27 @@ public final class WordTokenFilter extends TokenFilter {
 		} 
 
 		// There are remaining tokens from the current sentence, return the next one. 
-		String nextWord = tokenIter.next();
+		int i = next / 2;
+		int start = spans[next++];
+		int end = spans[next++];
 		//如果停用词字典不为空，才进行停用词过滤
 		if(null != stopWords && null != stopWords.getsWord()
 				&& stopWords.getsWord().size() > 0) {
 			//如果是停用词，则过滤掉
-			if(stopWords.isStopWord(nextWord)) {
+			if(stopWords.isStopWord(text.substring(start, end))) {
 				return false;
 			}
 		}
 
-		termAtt.append(nextWord);
-		if(null != posIter) {
-			String pos = posIter.next();
-			posAtt.setPartOfSpeech(pos);
+		termAtt.append(text, start, end);
+		if(null != poses) {
+			posAtt.setPartOfSpeech(poses[i]);
 		}
-		int end = idx+nextWord.length();
 		if (hasIllegalOffsets) {
 			offsetAtt.setOffset(tokStart, tokEnd);
 		} else {
-			offsetAtt.setOffset(idx, end-1);
+			offsetAtt.setOffset(tokStart + start, tokStart + end);
 		}
-		idx = end;
 		typeAtt.setType("word");
 		return true;
 	}
@@ -117,6 +109,6 @@ public final class WordTokenFilter extends TokenFilter {
 	@Override
 	public void reset() throws IOException {
 		super.reset();
-		tokenIter = null;
+		spans = null;
 	}
 }
@@ -0,0 +1,53 @@
+package edu.fudan.nlp.cn;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link ChineseNumber} 的测试，期望值为原来用正则表达式实现的
+ * stringPreHandlingModule.numberTranslator 的结果
+ */
+public class ChineseNumberTest extends TestCase {
+
+	private static final String DIGITS = "一二三四五六七八九";
+
+	public void testStandard() {
+		assertEquals("1200", ChineseNumber.translate("一千二百"));
+		assertEquals("605", ChineseNumber.translate("六百零五"));
+		assertEquals("214和214", ChineseNumber.translate("两百一十四和两百十四"));
+		assertEquals("2012年11月14日", ChineseNumber.translate("二零一二年十一月十四日"));
+		assertEquals("星期7下午3点15分", ChineseNumber.translate("星期天下午三点十五分"));
+		assertEquals("星期3 10点", ChineseNumber.translate("星期三 十点"));
+	}
+
+	public void testAbbreviation() {
+		assertEquals("23000", ChineseNumber.translate("两万三"));
+		assertEquals("3500", ChineseNumber.translate("三千五"));
+		assertEquals("350", ChineseNumber.translate("三百五"));
+		assertEquals("35000000", ChineseNumber.translate("三千五万"));
+	}
+
+	/**
+	 * "零"后的省略说法接在前面的单位之后，如"两万零六百五"为"两万0650"
+	 */
+	public void testZeroBeforeAbbreviation() {
+		assertEquals("20650", ChineseNumber.translate("两万零六百五"));
+		assertEquals("103500", ChineseNumber.translate("一万零三千五"));
+		assertEquals("3000250", ChineseNumber.translate("三百万零二百五"));
+		assertEquals("530250", ChineseNumber.translate("五万三千零二百五"));
+		assertEquals("1003500", ChineseNumber.translate("一万零零三千五"));
+		assertEquals("1068002", ChineseNumber.translate("一万零六千八两"));
+		for (int x = 1; x <= 9; x++) {
+			for (int y = 1; y <= 9; y++) {
+				for (int z = 1; z <= 9; z++) {
+					String p = DIGITS.charAt(x - 1) + "万零" + DIGITS.charAt(y - 1);
+					String s = String.valueOf(DIGITS.charAt(z - 1));
+					int v = x * 10000 + y * 100 + z * 10;
+					assertEquals(String.valueOf(v), ChineseNumber.translate(p + "百" + s));
+					//万后只取四位，"X万0YZ00"为"X0YZ0"和"0"
+					assertEquals(v + "0", ChineseNumber.translate(p + "千" + s));
+					assertEquals("于" + v + "0年", ChineseNumber.translate("于" + p + "千" + s + "年"));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package edu.fudan.nlp.parser.dep;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link JointParser} 柱搜索使用的动作对数概率的测试
+ */
+public class JointParserTest extends TestCase {
+
+	/**
+	 * 最大得分为负时，对数概率的大小顺序与原始得分相同
+	 */
+	public void testNegativeTopScore() {
+		double[] p = JointParser.logSoftmax(new float[] { -1, -3, -5 });
+		assertTrue(p[0] > p[1]);
+		assertTrue(p[1] > p[2]);
+		assertEquals(1.0, Math.exp(p[0]) + Math.exp(p[1]) + Math.exp(p[2]), 1e-9);
+		assertEquals(-2.0, p[1] - p[0], 1e-6);
+	}
+
+	/**
+	 * 得分差很大时不溢出
+	 */
+	public void testLargeGap() {
+		double[] p = JointParser.logSoftmax(new float[] { -1, -5000, Float.NEGATIVE_INFINITY });
+		assertEquals(0.0, p[0], 1e-9);
+		assertEquals(-4999.0, p[1], 1e-3);
+		assertEquals(Double.NEGATIVE_INFINITY, p[2]);
+	}
+}
@@ -0,0 +1,100 @@
+package edu.fudan.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link DoubleArrayTrie} 的测试，结果与HashSet比较
+ */
+public class DoubleArrayTrieTest extends TestCase {
+
+	private static final String CHARS = "复旦大学北京自然语言abc1\uD842\uDFB7\uD83D\uDE00";
+
+	private static String random(Random r, int maxLen) {
+		int len = r.nextInt(maxLen + 1);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < len; i++)
+			sb.append(CHARS.charAt(r.nextInt(CHARS.length())));
+		return sb.toString();
+	}
+
+	public void testEmpty() {
+		DoubleArrayTrie trie = new DoubleArrayTrie(new ArrayList<String>());
+		assertEquals(0, trie.size());
+		assertEquals(-1, trie.get("复旦"));
+		assertEquals(-1, trie.get(""));
+	}
+
+	/**
+	 * 空串被忽略，重复的词只算一个，编号为排序后的序号
+	 */
+	public void testBuild() {
+		List<String> words = Arrays.asList("复旦大学", "", "复旦", "北京", "复旦", "\uD842\uDFB7", "\uD842\uDFB7\uD842");
+		DoubleArrayTrie trie = new DoubleArrayTrie(words);
+		String[] sorted = new TreeSet<String>(words).toArray(new String[0]);
+		assertEquals(sorted.length - 1, trie.size());
+		for (int i = 1; i < sorted.length; i++)
+			assertEquals(i - 1, trie.get(sorted[i]));
+		assertEquals(-1, trie.get(""));
+		assertEquals(-1, trie.get("复"));
+		assertEquals(-1, trie.get("复旦大"));
+		assertEquals(-1, trie.get("\uD842"));
+		assertEquals(trie.get("复旦"), trie.get("在复旦上学", 1, 3));
+	}
+
+	/**
+	 * 随机词典，逐个查询和从每个位置开始的前缀匹配都与HashSet相同
+	 */
+	public void testAgainstHashSet() {
+		Random r = new Random(1);
+		HashSet<String> set = new HashSet<String>();
+		for (int i = 0; i < 5000; i++)
+			set.add(random(r, 6));
+		set.add("");
+		DoubleArrayTrie trie = new DoubleArrayTrie(set);
+		assertEquals(set.size() - 1, trie.size());
+
+		HashSet<Integer> ids = new HashSet<Integer>();
+		for (String w : set) {
+			if (w.length() == 0)
+				continue;
+			int id = trie.get(w);
+			assertTrue(w, id >= 0 && id < trie.size());
+			ids.add(id);
+		}
+		assertEquals(trie.size(), ids.size());
+
+		for (int i = 0; i < 2000; i++) {
+			String s = random(r, 8);
+			assertEquals(s, set.contains(s) && s.length() > 0, trie.get(s) >= 0);
+		}
+
+		for (int k = 0; k < 200; k++) {
+			String text = random(r, 40);
+			for (int i = 0; i < text.length(); i++) {
+				//沿Trie树前缀匹配
+				List<Integer> found = new ArrayList<Integer>();
+				int state = trie.root();
+				for (int j = i; j < text.length(); j++) {
+					state = trie.next(state, text.charAt(j));
+					if (state < 0)
+						break;
+					if (trie.value(state) >= 0)
+						found.add(j + 1);
+				}
+				List<Integer> expected = new ArrayList<Integer>();
+				for (int j = i + 1; j <= text.length(); j++) {
+					if (set.contains(text.substring(i, j)))
+						expected.add(j);
+				}
+				assertEquals(text + "@" + i, expected, found);
+			}
+		}
+	}
+}